@@ -0,0 +1,396 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.InvalidPropertiesFormatException;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Snapshot backed by a resource in the precompiled binary format, which is
+ * read in place without parsing. A binary file is memory-mapped. Binary
+ * resources obtained from other locations (e.g. the class path) are read into
+ * a single array. The format (big-endian) consists of:
+ *
+ * <pre>
+ * header   magic "PIBF", version, flags, size, index capacity,
+ *          data length, CRC-32 of the index and block checksums (7 ints)
+ * index    capacity slots of (key hash, data offset + 1), 0 for an empty slot,
+ *          positioned using the same hash function as {@link PropertySnapshot}
+ * blocks   CRC-32 of each {@value #BLOCK_SIZE} byte block of the data
+ * data     size records of (key length, UTF-8 key, value length, UTF-8 value)
+ * </pre>
+ *
+ * Only the index and block checksums are verified when the resource is
+ * opened. Each block of data is verified the first time a record within it
+ * is read, so that a large resource of which only a few records are used is
+ * not read in full. Values are decoded once and retained.
+ *
+ * @see PropertyResourceConverter
+ */
+final class BinaryPropertySnapshot extends PropertySnapshot {
+
+    static final int MAGIC = 0x50494246;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 28;
+    static final int SLOT_SIZE = 8;
+    static final int BLOCK_SIZE = 4096;
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int mask;
+    private final int shift;
+    private final int blocksStart;
+    private final int dataStart;
+    private final int dataLength;
+
+    /*
+     * Both arrays are written without synchronization. A thread that does not
+     * observe another thread's write repeats the same verification or decodes
+     * an equal value.
+     */
+    private final boolean[] verified;
+    private final String[] values;
+
+    private BinaryPropertySnapshot(ByteBuffer buffer, int size, int capacity, int blockCount, int dataLength) {
+        this.buffer = buffer;
+        this.size = size;
+        this.mask = capacity - 1;
+        this.shift = shift(capacity);
+        this.blocksStart = HEADER_SIZE + capacity * SLOT_SIZE;
+        this.dataStart = blocksStart + blockCount * 4;
+        this.dataLength = dataLength;
+        this.verified = new boolean[blockCount];
+        this.values = new String[capacity];
+    }
+
+    static BinaryPropertySnapshot map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long length = channel.size();
+
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Resource is too large to be mapped: " + file);
+            }
+
+            return of(channel.map(FileChannel.MapMode.READ_ONLY, 0, length));
+        }
+    }
+
+    /*
+     * Validates the header of the binary resource in the buffer and the
+     * checksum of its index and block checksums.
+     */
+    static BinaryPropertySnapshot of(ByteBuffer buffer) throws InvalidPropertiesFormatException {
+        final int limit = buffer.limit();
+
+        if (limit < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new InvalidPropertiesFormatException("Not a binary properties resource");
+        }
+
+        final int version = buffer.getInt(4);
+
+        if (version != VERSION) {
+            throw new InvalidPropertiesFormatException("Unsupported binary properties version: " + version);
+        }
+
+        final int size = buffer.getInt(12);
+        final int capacity = buffer.getInt(16);
+        final int dataLength = buffer.getInt(20);
+
+        if (size < 0 || capacity <= 0 || Integer.bitCount(capacity) != 1 || size > capacity || dataLength < 0) {
+            throw new InvalidPropertiesFormatException("Corrupt binary properties resource header");
+        }
+
+        final int blockCount = blockCount(dataLength);
+        final long dataStart = HEADER_SIZE + (long) capacity * SLOT_SIZE + blockCount * 4L;
+
+        if (dataStart + dataLength != limit) {
+            throw new InvalidPropertiesFormatException("Corrupt binary properties resource header");
+        }
+
+        if (checksum(buffer, HEADER_SIZE, (int) dataStart) != buffer.getInt(24)) {
+            throw new InvalidPropertiesFormatException("Binary properties resource checksum mismatch");
+        }
+
+        return new BinaryPropertySnapshot(buffer, size, capacity, blockCount, dataLength);
+    }
+
+    static int blockCount(int dataLength) {
+        return (int) (((long) dataLength + BLOCK_SIZE - 1) / BLOCK_SIZE);
+    }
+
+    static int checksum(ByteBuffer buffer, int start, int end) {
+        final ByteBuffer content = buffer.duplicate();
+        content.limit(end);
+        content.position(start);
+        final CRC32 checksum = new CRC32();
+        checksum.update(content);
+        return (int) checksum.getValue();
+    }
+
+    /*
+     * Writes the snapshot in the binary format.
+     */
+    static void write(PropertySnapshot snapshot, OutputStream output) throws IOException {
+        final int size = snapshot.size();
+        int capacity = 2;
+
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+
+        final int shift = shift(capacity);
+        final int mask = capacity - 1;
+        final ByteBuffer index = ByteBuffer.allocate(capacity * SLOT_SIZE);
+        final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        final DataOutputStream records = new DataOutputStream(data);
+        final IOException[] failure = new IOException[1];
+
+        snapshot.forEach((key, value) -> {
+            int slot = index(key.hashCode(), shift);
+
+            while (index.getInt(slot * SLOT_SIZE + 4) != 0) {
+                slot = (slot + 1) & mask;
+            }
+
+            index.putInt(slot * SLOT_SIZE, key.hashCode());
+            index.putInt(slot * SLOT_SIZE + 4, records.size() + 1);
+
+            try {
+                writeString(records, key);
+                writeString(records, value);
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+
+        final byte[] dataBytes = data.toByteArray();
+        final ByteBuffer dataBuffer = ByteBuffer.wrap(dataBytes);
+        final ByteBuffer blocks = ByteBuffer.allocate(blockCount(dataBytes.length) * 4);
+
+        for (int start = 0; start < dataBytes.length; start += BLOCK_SIZE) {
+            blocks.putInt(checksum(dataBuffer, start, Math.min(start + BLOCK_SIZE, dataBytes.length)));
+        }
+
+        final CRC32 checksum = new CRC32();
+        checksum.update(index.array());
+        checksum.update(blocks.array());
+
+        final DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(0);
+        out.writeInt(size);
+        out.writeInt(capacity);
+        out.writeInt(dataBytes.length);
+        out.writeInt((int) checksum.getValue());
+        out.write(index.array());
+        out.write(blocks.array());
+        out.write(dataBytes);
+        out.flush();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Override
+    String get(String key) {
+        final int hash = key.hashCode();
+        int slot = index(hash, shift);
+
+        for (;;) {
+            final int position = HEADER_SIZE + slot * SLOT_SIZE;
+            final int offset = buffer.getInt(position + 4);
+
+            if (offset == 0) {
+                return null;
+            }
+
+            if (buffer.getInt(position) == hash) {
+                final String value = values[slot];
+
+                if (value != null) {
+                    if (keyEquals(dataStart + offset - 1, key)) {
+                        return value;
+                    }
+                } else {
+                    final int record = record(offset);
+
+                    if (keyEquals(record, key)) {
+                        return value(slot, record);
+                    }
+                }
+            }
+
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /*
+     * Verifies the blocks holding the record at the given data offset (plus
+     * one) and returns the position of the record.
+     */
+    private int record(int offset) {
+        final int record = dataStart + offset - 1;
+        verify(record, record + 4);
+        final int keyLength = buffer.getInt(record);
+        final int value = record + 4 + keyLength;
+        verify(record, value + 4);
+        verify(value, value + 4 + buffer.getInt(value));
+        return record;
+    }
+
+    private void verify(int start, int end) {
+        final int last = (end - 1 - dataStart) / BLOCK_SIZE;
+
+        for (int block = (start - dataStart) / BLOCK_SIZE; block <= last; block++) {
+            if (!verified[block]) {
+                final int blockStart = dataStart + block * BLOCK_SIZE;
+                final int blockEnd = dataStart + Math.min((block + 1) * BLOCK_SIZE, dataLength);
+
+                if (checksum(buffer, blockStart, blockEnd) != buffer.getInt(blocksStart + block * 4)) {
+                    throw new IllegalStateException("Binary properties resource checksum mismatch");
+                }
+
+                verified[block] = true;
+            }
+        }
+    }
+
+    private String value(int slot, int record) {
+        final int value = record + 4 + buffer.getInt(record);
+        final String result = decode(value + 4, buffer.getInt(value));
+        values[slot] = result;
+        return result;
+    }
+
+    /*
+     * Compares the UTF-8 encoded key of the record with the given key without
+     * decoding it.
+     */
+    private boolean keyEquals(int record, String key) {
+        final int keyLength = key.length();
+        final int end = record + 4 + buffer.getInt(record);
+        int position = record + 4;
+        int i = 0;
+
+        while (position < end) {
+            if (i == keyLength) {
+                return false;
+            }
+
+            final int b = buffer.get(position++);
+
+            if (b >= 0) {
+                if (key.charAt(i++) != b) {
+                    return false;
+                }
+                continue;
+            }
+
+            int codePoint;
+            int continuations;
+
+            if ((b & 0xE0) == 0xC0) {
+                codePoint = b & 0x1F;
+                continuations = 1;
+            } else if ((b & 0xF0) == 0xE0) {
+                codePoint = b & 0x0F;
+                continuations = 2;
+            } else if ((b & 0xF8) == 0xF0) {
+                codePoint = b & 0x07;
+                continuations = 3;
+            } else {
+                return false;
+            }
+
+            if (position + continuations > end) {
+                return false;
+            }
+
+            while (continuations-- > 0) {
+                codePoint = (codePoint << 6) | (buffer.get(position++) & 0x3F);
+            }
+
+            if (Character.isBmpCodePoint(codePoint)) {
+                if (key.charAt(i++) != codePoint) {
+                    return false;
+                }
+            } else if (i + 1 >= keyLength
+                    || key.charAt(i++) != Character.highSurrogate(codePoint)
+                    || key.charAt(i++) != Character.lowSurrogate(codePoint)) {
+                return false;
+            }
+        }
+
+        return i == keyLength;
+    }
+
+    private String decode(int position, int length) {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + position, length, StandardCharsets.UTF_8);
+        }
+
+        final byte[] bytes = new byte[length];
+        final ByteBuffer source = buffer.duplicate();
+        source.position(position);
+        source.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    /*
+     * A mapped resource, including its index, is not held on the heap.
+     */
+    @Override
+    long weight() {
+        return buffer.isDirect() ? 0 : buffer.limit() / 2;
+    }
+
+    @Override
+    void forEach(BiConsumer<String, String> action) {
+        for (int slot = 0; slot <= mask; slot++) {
+            final int offset = buffer.getInt(HEADER_SIZE + slot * SLOT_SIZE + 4);
+
+            if (offset != 0) {
+                final int record = record(offset);
+                final String value = values[slot];
+                action.accept(decode(record + 4, buffer.getInt(record)), value != null ? value : value(slot, record));
+            }
+        }
+    }
+}
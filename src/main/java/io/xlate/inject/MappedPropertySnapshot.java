@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.BiConsumer;
+
+/**
+ * Snapshot of a properties file that has been mapped into memory. Only an
+ * index of key hash codes and line offsets is held on the heap. Keys and
+ * values remain in the mapped file and are decoded each time they are
+ * requested, making this suitable for very large resources of which only a
+ * small portion is used.
+ *
+ * The file must not be modified in place while it is mapped. A file that is
+ * updated should be replaced, e.g. by moving a new file over the old file.
+ */
+final class MappedPropertySnapshot extends PropertySnapshot {
+
+    private final ByteBuffer buffer;
+    private final int[] hashes;
+    /* Offset of the line for each key plus one, zero for an unused slot */
+    private final int[] offsets;
+    private final int mask;
+    private final int shift;
+    private final int size;
+
+    private MappedPropertySnapshot(ByteBuffer buffer, Index index) {
+        this.buffer = buffer;
+        this.hashes = index.hashes;
+        this.offsets = index.offsets;
+        this.mask = index.offsets.length - 1;
+        this.shift = shift(index.offsets.length);
+        this.size = index.size;
+    }
+
+    static MappedPropertySnapshot map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long length = channel.size();
+
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Resource is too large to be mapped: " + file);
+            }
+
+            return of(channel.map(FileChannel.MapMode.READ_ONLY, 0, length));
+        }
+    }
+
+    static MappedPropertySnapshot of(ByteBuffer buffer) {
+        final Index index = new Index(buffer);
+        final PropertyLineReader reader = new PropertyLineReader(buffer);
+
+        while (reader.readLine()) {
+            index.put(reader.keyHash(), reader.lineStart(), reader);
+        }
+
+        return new MappedPropertySnapshot(buffer, index);
+    }
+
+    @Override
+    String get(String key) {
+        final int hash = key.hashCode();
+        int slot = index(hash, shift);
+
+        for (;;) {
+            final int offset = offsets[slot];
+
+            if (offset == 0) {
+                return null;
+            }
+
+            if (hashes[slot] == hash) {
+                final PropertyLineReader reader = new PropertyLineReader(buffer, offset - 1);
+                reader.readLine();
+
+                if (reader.keyEquals(key)) {
+                    return reader.value();
+                }
+            }
+
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    /*
+     * Only the index is held on the heap, so its size (expressed in characters)
+     * is used as the weight rather than the length of the keys and values.
+     */
+    @Override
+    long weight() {
+        return ((long) hashes.length + offsets.length) * 2;
+    }
+
+    @Override
+    void forEach(BiConsumer<String, String> action) {
+        for (int offset : offsets) {
+            if (offset != 0) {
+                final PropertyLineReader reader = new PropertyLineReader(buffer, offset - 1);
+                reader.readLine();
+                action.accept(reader.key(), reader.value());
+            }
+        }
+    }
+
+    /*
+     * Open-addressing table of line offsets, grown as lines are added. When a
+     * key occurs more than once, the last occurrence is used, consistent with
+     * Properties#load.
+     */
+    static final class Index {
+        private final ByteBuffer buffer;
+        int[] hashes = new int[16];
+        int[] offsets = new int[16];
+        int size;
+
+        Index(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        void put(int hash, int offset, PropertyLineReader reader) {
+            if ((size + 1) * 4 > offsets.length * 3) {
+                resize();
+            }
+
+            final int mask = offsets.length - 1;
+            int slot = index(hash, shift(offsets.length));
+
+            while (offsets[slot] != 0) {
+                if (hashes[slot] == hash && sameKey(offsets[slot] - 1, reader)) {
+                    offsets[slot] = offset + 1;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            hashes[slot] = hash;
+            offsets[slot] = offset + 1;
+            size++;
+        }
+
+        private boolean sameKey(int offset, PropertyLineReader reader) {
+            final PropertyLineReader existing = new PropertyLineReader(buffer, offset);
+            existing.readLine();
+            return existing.keyEquals(reader.key());
+        }
+
+        private void resize() {
+            final int[] oldHashes = hashes;
+            final int[] oldOffsets = offsets;
+            final int capacity = oldOffsets.length << 1;
+            final int mask = capacity - 1;
+            final int shift = shift(capacity);
+
+            hashes = new int[capacity];
+            offsets = new int[capacity];
+
+            for (int i = 0; i < oldOffsets.length; i++) {
+                if (oldOffsets[i] != 0) {
+                    int slot = index(oldHashes[i], shift);
+
+                    while (offsets[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+
+                    hashes[slot] = oldHashes[i];
+                    offsets[slot] = oldOffsets[i];
+                }
+            }
+        }
+    }
+}
@@ -49,12 +49,21 @@ public @interface Property {
 
 	/**
 	 * The format of the property to be used when parsing a
-	 * {@link java.math.BigInteger}, {@link java.math.BigDecimal}, or
-	 * {@link java.util.Date}. When injecting numeric properties, the value of the
+	 * {@link java.math.BigInteger}, {@link java.math.BigDecimal},
+	 * {@link java.util.Date}, or a {@link java.time} value. When injecting numeric properties, the value of the
 	 * pattern must be a valid value to be used by
 	 * {@link java.text.DecimalFormat#DecimalFormat(String)}. When injecting date
 	 * properties, the pattern must be a valid value to be used by
-	 * {@link java.text.SimpleDateFormat}.
+	 * {@link java.text.SimpleDateFormat}. When injecting
+	 * {@link java.time.Instant}, {@link java.time.LocalDate},
+	 * {@link java.time.LocalDateTime}, {@link java.time.OffsetDateTime}, or
+	 * {@link java.time.ZonedDateTime} properties, the pattern must be a valid
+	 * value to be used by
+	 * {@link java.time.format.DateTimeFormatter#ofPattern(String)}; when left
+	 * unspecified, the value is parsed in the ISO-8601 format for the type.
+	 * {@link java.time.Duration} and {@link java.time.Period} properties are
+	 * always parsed in the ISO-8601 format (e.g. PT15M or P1M2D) and the
+	 * pattern is ignored.
 	 *
 	 * @return pattern to be used for parsing numeric values or date values,
 	 *         depending on the context
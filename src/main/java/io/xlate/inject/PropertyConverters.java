@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.Period;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalQuery;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.JsonStructure;
+
+/**
+ * Conversions from the string value of a property to the types supported for
+ * injection.
+ */
+final class PropertyConverters {
+
+    private static final Logger logger = Logger.getLogger(PropertyConverters.class.getName());
+    private static final String DEFAULT_DATE_PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
+
+    @FunctionalInterface
+    interface Converter<T> {
+        T convert(String value, String pattern) throws Exception;
+    }
+
+    private static final Map<Class<?>, Converter<?>> converters = new HashMap<>();
+
+    static {
+        converters.put(String.class, (value, pattern) -> value);
+        converters.put(Boolean.class, (value, pattern) -> Boolean.valueOf(value));
+        converters.put(Integer.class, (value, pattern) -> Integer.valueOf(value));
+        converters.put(Long.class, (value, pattern) -> Long.valueOf(value));
+        converters.put(Float.class, (value, pattern) -> Float.valueOf(value));
+        converters.put(Double.class, (value, pattern) -> Double.valueOf(value));
+        converters.put(BigDecimal.class, PropertyConverters::parseBigDecimal);
+        converters.put(BigInteger.class, (value, pattern) -> parseBigDecimal(value, pattern).toBigInteger());
+        converters.put(Date.class, PropertyConverters::parseDate);
+        converters.put(Instant.class, (value, pattern) -> parseTemporal(value, pattern, DateTimeFormatter.ISO_INSTANT, Instant::from));
+        converters.put(LocalDate.class, (value, pattern) -> parseTemporal(value, pattern, DateTimeFormatter.ISO_LOCAL_DATE, LocalDate::from));
+        converters.put(LocalDateTime.class, (value, pattern) -> parseTemporal(value, pattern, DateTimeFormatter.ISO_LOCAL_DATE_TIME, LocalDateTime::from));
+        converters.put(OffsetDateTime.class, (value, pattern) -> parseTemporal(value, pattern, DateTimeFormatter.ISO_OFFSET_DATE_TIME, OffsetDateTime::from));
+        converters.put(ZonedDateTime.class, (value, pattern) -> parseTemporal(value, pattern, DateTimeFormatter.ISO_ZONED_DATE_TIME, ZonedDateTime::from));
+        converters.put(Duration.class, (value, pattern) -> Duration.parse(value));
+        converters.put(Period.class, (value, pattern) -> Period.parse(value));
+    }
+
+    private PropertyConverters() {
+    }
+
+    static boolean isSupported(Class<?> type) {
+        return converters.containsKey(type) || isJsonType(type);
+    }
+
+    static <T> T convert(Class<T> type, String value, String pattern) throws Exception {
+        if (value == null) {
+            return null;
+        }
+
+        return converter(type).convert(value, pattern);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> Converter<T> converter(Class<T> type) {
+        final Converter<?> converter = converters.get(type);
+
+        if (converter != null) {
+            return (Converter<T>) converter;
+        }
+        if (isJsonType(type)) {
+            return (value, pattern) -> type.cast(JsonConverters.convert(type, value));
+        }
+
+        throw new IllegalArgumentException("Unsupported property type: " + type.getName());
+    }
+
+    static BigDecimal parseBigDecimal(String value, String pattern) throws ParseException {
+        if (pattern.isEmpty()) {
+            return new BigDecimal(value);
+        }
+
+        if (logger.isLoggable(Level.FINER)) {
+            logger.log(Level.FINER, "Parsing number with using pattern [" + pattern + ']');
+        }
+
+        return PropertyFormatCache.DECIMAL.parse(pattern, format -> (BigDecimal) format.parse(value));
+    }
+
+    static Date parseDate(String value, String pattern) throws ParseException {
+        return PropertyFormatCache.DATE.parse(pattern.isEmpty() ? DEFAULT_DATE_PATTERN : pattern,
+                                              format -> format.parse(value));
+    }
+
+    /*
+     * Parses a java.time value using the ISO-8601 formatter for the type when
+     * no pattern is given, otherwise the shared formatter for the pattern.
+     */
+    static <T> T parseTemporal(String value, String pattern, DateTimeFormatter isoFormatter, TemporalQuery<T> query) {
+        final DateTimeFormatter formatter;
+
+        if (pattern.isEmpty()) {
+            formatter = isoFormatter;
+        } else {
+            formatter = PropertyFormatCache.dateTimeFormatter(pattern);
+        }
+
+        return formatter.parse(value, query);
+    }
+
+    static boolean isJsonType(Class<?> type) {
+        final String name = type.getName();
+        return "javax.json.JsonArray".equals(name) || "javax.json.JsonObject".equals(name);
+    }
+
+    /*
+     * Isolated so that the optional javax.json API is only loaded when a JSON
+     * type is actually requested.
+     */
+    static final class JsonConverters {
+        private JsonConverters() {
+        }
+
+        static Object convert(Class<?> type, String value) {
+            if (type == JsonArray.class) {
+                return parse(value, JsonReader::readArray);
+            }
+            return parse(value, JsonReader::readObject);
+        }
+
+        static <T extends JsonStructure> T parse(String value, Function<JsonReader, T> jsonSupplier) {
+            try (JsonReader reader = Json.createReader(new StringReader(value))) {
+                return jsonSupplier.apply(reader);
+            }
+        }
+    }
+}
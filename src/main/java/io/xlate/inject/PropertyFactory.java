@@ -16,22 +16,19 @@
  ******************************************************************************/
 package io.xlate.inject;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.lang.reflect.Executable;
 import java.lang.reflect.Member;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLStreamHandler;
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Properties;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.enterprise.inject.InjectionException;
 import javax.enterprise.inject.spi.Annotated;
@@ -40,12 +37,23 @@ import javax.enterprise.inject.spi.InjectionPoint;
 
 class PropertyFactory {
 
-    private static final Logger logger = Logger.getLogger(PropertyFactory.class.getName());
     private static final String CLASSPATH = "classpath";
-    final Map<String, Properties> propertiesCache;
+    final PropertyResourceRegistry registry;
+    final ConcurrentMap<Object, PropertyInjectionPlan> plans = new ConcurrentHashMap<>();
+    /* Process environment, captured once; it does not change while running */
+    final Map<String, String> environment;
 
     PropertyFactory() {
-        propertiesCache = new HashMap<>();
+        this(new PropertyResourceRegistry());
+    }
+
+    PropertyFactory(PropertyResourceRegistry registry) {
+        this(registry, System.getenv());
+    }
+
+    PropertyFactory(PropertyResourceRegistry registry, Map<String, String> environment) {
+        this.registry = registry;
+        this.environment = environment;
     }
 
     URLStreamHandler classPathHandler(Class<?> beanType) {
@@ -53,7 +61,10 @@ class PropertyFactory {
     }
 
     URL getResourceUrl(PropertyResource annotation, Class<?> beanType) throws MalformedURLException {
-        final String location = annotation.value();
+        return getResourceUrl(annotation.value(), annotation.resolveEnvironment(), beanType);
+    }
+
+    URL getResourceUrl(String location, boolean resolveEnvironment, Class<?> beanType) throws MalformedURLException {
         final URL resourceUrl;
 
         if (location.isEmpty()) {
@@ -65,7 +76,7 @@ class PropertyFactory {
         } else {
             final String resolvedLocation;
 
-            if (annotation.resolveEnvironment()) {
+            if (resolveEnvironment) {
                 resolvedLocation = replaceEnvironmentReferences(location);
             } else {
                 resolvedLocation = location;
@@ -92,6 +103,79 @@ class PropertyFactory {
         return resourceUrl;
     }
 
+    void addListener(final URL resourceUrl, final Runnable listener) {
+        registry.addListener(resourceUrl.toString(), listener);
+    }
+
+    static Object getInjectionKey(final InjectionPoint point) {
+        final Annotated annotated = point.getAnnotated();
+        final int position;
+
+        if (annotated instanceof AnnotatedParameter) {
+            position = ((AnnotatedParameter<?>) annotated).getPosition();
+        } else {
+            position = -1;
+        }
+
+        return Arrays.asList(point.getMember(), position);
+    }
+
+    /*
+     * Retrieve the plan for a Property injection point, resolving the
+     * annotation on first use.
+     */
+    PropertyInjectionPlan getPlan(final InjectionPoint point) throws MalformedURLException {
+        final Object key = getInjectionKey(point);
+        final PropertyInjectionPlan plan = plans.get(key);
+
+        if (plan != null) {
+            return plan;
+        }
+
+        final Property annotation = point.getAnnotated().getAnnotation(Property.class);
+        final Class<?> beanType = point.getMember().getDeclaringClass();
+        final String propertyName = getPropertyName(point, annotation.name());
+        final String systemProperty;
+
+        if (annotation.systemProperty().isEmpty()) {
+            systemProperty = beanType.getName() + '.' + propertyName;
+        } else {
+            systemProperty = annotation.systemProperty();
+        }
+
+        final PropertyResource resource = annotation.resource();
+
+        return cachePlan(key, new PropertyInjectionPlan(resource,
+                                                        getResourceUrl(resource, beanType),
+                                                        propertyName,
+                                                        systemProperty,
+                                                        annotation.defaultValue(),
+                                                        annotation.pattern(),
+                                                        annotation.resolveEnvironment()));
+    }
+
+    /*
+     * Retrieve the plan for a PropertyResource injection point, resolving the
+     * annotation on first use.
+     */
+    PropertyInjectionPlan getResourcePlan(final InjectionPoint point) throws MalformedURLException {
+        final Object key = getInjectionKey(point);
+        final PropertyInjectionPlan plan = plans.get(key);
+
+        if (plan != null) {
+            return plan;
+        }
+
+        final PropertyResource resource = point.getAnnotated().getAnnotation(PropertyResource.class);
+        final URL resourceUrl = getResourceUrl(resource, point.getMember().getDeclaringClass());
+        return cachePlan(key, new PropertyInjectionPlan(resource, resourceUrl));
+    }
+
+    PropertyInjectionPlan cachePlan(Object key, PropertyInjectionPlan plan) {
+        final PropertyInjectionPlan existing = plans.putIfAbsent(key, plan);
+        return existing != null ? existing : plan;
+    }
+
     String getPropertyName(final InjectionPoint point, final String propertyName) {
         if (!propertyName.isEmpty()) {
             return propertyName;
@@ -115,19 +199,15 @@ class PropertyFactory {
                              final String systemProperty,
                              final String propertyName) {
 
-        final String lookupProperty;
-
         if (systemProperty.isEmpty()) {
-            StringBuilder systemPropertyKey = new StringBuilder();
-            systemPropertyKey.append(beanType.getName());
-            systemPropertyKey.append('.');
-            systemPropertyKey.append(propertyName);
-            lookupProperty = systemPropertyKey.toString();
-        } else {
-            lookupProperty = systemProperty;
+            return getSystemProperty(beanType.getName() + '.' + propertyName);
         }
 
-        return getProperty(System.getProperties(), lookupProperty, Property.DEFAULT_NULL);
+        return getSystemProperty(systemProperty);
+    }
+
+    String getSystemProperty(final String systemProperty) {
+        return registry.getSystemProperty(systemProperty);
     }
 
     String getProperty(final URL resourceUrl,
@@ -136,40 +216,42 @@ class PropertyFactory {
                        final String propertyName,
                        final String defaultValue) throws IOException {
 
-        final Properties properties = getProperties(resourceUrl, format, allowMissingResource);
-        return getProperty(properties, propertyName, defaultValue);
+        final PropertySnapshot snapshot = registry.getSnapshot(resourceUrl, format, allowMissingResource);
+        return getProperty(snapshot, propertyName, defaultValue);
     }
 
     Properties getProperties(final URL resourceUrl,
                              final PropertyResourceFormat format,
                              boolean allowMissingResource) throws IOException {
+        return registry.getProperties(resourceUrl, format, allowMissingResource);
+    }
 
-        final Properties properties;
-        final String resourceId = resourceUrl.toString();
-
-        if (propertiesCache.containsKey(resourceId)) {
-            properties = propertiesCache.get(resourceId);
-        } else {
-            properties = new Properties();
-            propertiesCache.put(resourceId, properties);
+    Properties getProperties(final URL resourceUrl, final PropertyResource annotation) throws IOException {
+        final PropertySnapshot snapshot = getSnapshot(resourceUrl, annotation);
 
-            try (InputStream resourceStream = resourceUrl.openStream()) {
-                if (PropertyResourceFormat.XML == format) {
-                    properties.loadFromXML(resourceStream);
-                } else {
-                    properties.load(resourceStream);
-                }
-            } catch (FileNotFoundException e) {
-                if (allowMissingResource) {
-                    logger.log(Level.WARNING, "Resource not found: " + resourceUrl, e);
-                    properties.clear();
-                } else {
-                    throw e;
-                }
-            }
+        switch (annotation.access()) {
+        case READ_ONLY:
+            return snapshot.toReadOnlyProperties();
+        case COPY_ON_WRITE:
+            return SharedProperties.copyOnWrite(snapshot.toReadOnlyProperties());
+        default:
+            return snapshot == PropertySnapshot.EMPTY ? new Properties() : snapshot.toProperties();
         }
+    }
+
+    PropertySnapshot getSnapshot(final URL resourceUrl, final PropertyResource annotation) throws IOException {
+        final PropertySnapshot snapshot = registry.getSnapshot(resourceUrl,
+                                                               annotation.format(),
+                                                               annotation.allowMissingResource(),
+                                                               Duration.ofSeconds(annotation.refreshInterval()),
+                                                               annotation.watch(),
+                                                               annotation.mapped());
 
-        return properties;
+        return annotation.interpolate() ? interpolate(snapshot) : snapshot;
+    }
+
+    PropertySnapshot interpolate(final PropertySnapshot snapshot) throws IOException {
+        return snapshot.interpolated(environment, registry::getSystemProperty, registry.systemProperties.generation());
     }
 
     String getProperty(final Properties properties, final String propertyName, final String defaultValue) {
@@ -184,31 +266,14 @@ class PropertyFactory {
         return value;
     }
 
-    String replaceEnvironmentReferences(final String value) {
-        StringBuilder result = new StringBuilder(value.length());
-        Pattern pattern = Pattern.compile("\\$\\{env\\.([_a-zA-Z0-9]+)\\}");
-        Matcher m = pattern.matcher(value);
-        int start = 0;
-
-        while (m.find()) {
-            String variableName = m.group(1);
-            String variableValue = System.getenv(variableName);
-
-            result.append(value.substring(start, m.start()));
-
-            if (variableValue != null) {
-                result.append(variableValue);
-            }
-
-            start = m.end();
-        }
-
-        if (start > 0) {
-            result.append(value.substring(start));
-        } else {
-            return value;
+    String getProperty(final PropertySnapshot snapshot, final String propertyName, final String defaultValue) {
+        if (Property.DEFAULT_NULL.equals(defaultValue)) {
+            return snapshot.get(propertyName);
         }
+        return snapshot.get(propertyName, defaultValue);
+    }
 
-        return result.toString();
+    String replaceEnvironmentReferences(final String value) {
+        return PropertyTemplate.resolve(value, environment);
     }
 }
@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.Format;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Pools of compiled {@link java.text} formats keyed by pattern, locale and
+ * (for dates) time zone, so that a pattern given in a {@link Property}
+ * annotation is compiled once rather than on every injection.
+ *
+ * Neither {@link DecimalFormat} nor {@link SimpleDateFormat} is safe for
+ * concurrent use, so a format is borrowed exclusively by one thread for the
+ * duration of a parse and returned to its pool afterwards. When the pool for
+ * a pattern is empty a new instance is created; at most {@link #MAX_IDLE}
+ * idle instances are retained per pattern. Pools rather than thread locals
+ * are used so that no formats (and no references to this class loader) are
+ * left behind on container threads after undeployment.
+ *
+ * {@link DateTimeFormatter}s are immutable and thread-safe, so a single
+ * instance per pattern and locale is shared by all threads.
+ */
+final class PropertyFormatCache<F extends Format> {
+
+    static final int MAX_IDLE = 4;
+    static final int MAX_PATTERNS = 256;
+
+    @FunctionalInterface
+    interface FormatFactory<F extends Format> {
+        F create(String pattern, Locale locale, TimeZone zone);
+    }
+
+    @FunctionalInterface
+    interface FormatFunction<F extends Format, T> {
+        T apply(F format) throws ParseException;
+    }
+
+    static final PropertyFormatCache<DecimalFormat> DECIMAL = new PropertyFormatCache<>(false, (pattern, locale, zone) -> {
+        DecimalFormat format = new DecimalFormat(pattern, DecimalFormatSymbols.getInstance(locale));
+        format.setParseBigDecimal(true);
+        return format;
+    });
+
+    static final PropertyFormatCache<SimpleDateFormat> DATE = new PropertyFormatCache<>(true, (pattern, locale, zone) -> {
+        SimpleDateFormat format = new SimpleDateFormat(pattern, locale);
+        format.setTimeZone(zone);
+        return format;
+    });
+
+    private static final ConcurrentMap<Key, DateTimeFormatter> dateTimeFormatters = new ConcurrentHashMap<>();
+
+    private final boolean zoned;
+    private final FormatFactory<F> factory;
+    private final ConcurrentMap<Key, BlockingQueue<F>> pools = new ConcurrentHashMap<>();
+
+    PropertyFormatCache(boolean zoned, FormatFactory<F> factory) {
+        this.zoned = zoned;
+        this.factory = factory;
+    }
+
+    /**
+     * Parse using a format for the given pattern in the current default
+     * locale (and time zone, for date formats).
+     */
+    <T> T parse(String pattern, FormatFunction<F, T> function) throws ParseException {
+        final Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        final TimeZone zone = zoned ? TimeZone.getDefault() : null;
+        final Key key = new Key(pattern, locale, zone != null ? zone.getID() : null);
+        final BlockingQueue<F> pool = pool(key);
+
+        F format = pool != null ? pool.poll() : null;
+
+        if (format == null) {
+            format = factory.create(pattern, locale, zone);
+        }
+
+        try {
+            return function.apply(format);
+        } finally {
+            if (pool != null) {
+                pool.offer(format);
+            }
+        }
+    }
+
+    /**
+     * Returns the shared formatter for the given pattern in the current default
+     * locale, compiling it on first use.
+     */
+    static DateTimeFormatter dateTimeFormatter(String pattern) {
+        final Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        final Key key = new Key(pattern, locale, null);
+        DateTimeFormatter formatter = dateTimeFormatters.get(key);
+
+        if (formatter == null) {
+            formatter = DateTimeFormatter.ofPattern(pattern, locale);
+
+            if (dateTimeFormatters.size() < MAX_PATTERNS) {
+                final DateTimeFormatter existing = dateTimeFormatters.putIfAbsent(key, formatter);
+                formatter = existing != null ? existing : formatter;
+            }
+        }
+
+        return formatter;
+    }
+
+    /*
+     * Patterns normally come from annotations and are therefore bounded, but
+     * values supplied by other means must not grow the cache without limit.
+     * Beyond MAX_PATTERNS, formats are created per call as before.
+     */
+    private BlockingQueue<F> pool(Key key) {
+        BlockingQueue<F> pool = pools.get(key);
+
+        if (pool == null && pools.size() < MAX_PATTERNS) {
+            pool = pools.computeIfAbsent(key, k -> new ArrayBlockingQueue<>(MAX_IDLE));
+        }
+
+        return pool;
+    }
+
+    int patterns() {
+        return pools.size();
+    }
+
+    int idle(String pattern) {
+        int idle = 0;
+
+        for (Map.Entry<Key, BlockingQueue<F>> entry : pools.entrySet()) {
+            if (entry.getKey().pattern.equals(pattern)) {
+                idle += entry.getValue().size();
+            }
+        }
+
+        return idle;
+    }
+
+    void clear() {
+        pools.clear();
+    }
+
+    static final class Key {
+        final String pattern;
+        final Locale locale;
+        final String zone;
+        final int hash;
+
+        Key(String pattern, Locale locale, String zone) {
+            this.pattern = pattern;
+            this.locale = locale;
+            this.zone = zone;
+            this.hash = Objects.hash(pattern, locale, zone);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash
+                    && pattern.equals(other.pattern)
+                    && locale.equals(other.locale)
+                    && Objects.equals(zone, other.zone);
+        }
+    }
+}
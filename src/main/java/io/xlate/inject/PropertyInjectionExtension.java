@@ -16,18 +16,90 @@
  ******************************************************************************/
 package io.xlate.inject;
 
+import java.io.IOException;
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.enterprise.event.Observes;
+import javax.enterprise.inject.spi.AfterBeanDiscovery;
+import javax.enterprise.inject.spi.AfterDeploymentValidation;
 import javax.enterprise.inject.spi.BeanManager;
 import javax.enterprise.inject.spi.BeforeBeanDiscovery;
+import javax.enterprise.inject.spi.BeforeShutdown;
+import javax.enterprise.inject.spi.DeploymentException;
 import javax.enterprise.inject.spi.Extension;
+import javax.enterprise.inject.spi.InjectionPoint;
+import javax.enterprise.inject.spi.ProcessInjectionPoint;
+import javax.inject.Singleton;
 
+/**
+ * Registers the property producers and the {@link PropertyResourceRegistry}.
+ *
+ * The resources referenced by the {@link Property} and
+ * {@link PropertyResource} injection points of the deployment are loaded in
+ * parallel while the container validates the deployment, so that the first
+ * injection does not wait for I/O. A resource that can not be loaded is
+ * reported as a deployment problem. Preloading may be disabled by setting the
+ * system property {@value #PRELOAD_PROPERTY} to <code>false</code>, and the
+ * number of loading threads set using {@value #PRELOAD_THREADS_PROPERTY}
+ * (default: the number of available processors, at least 2). When the
+ * deployment includes a manifest generated by {@link PropertyManifestProcessor},
+ * the resources it lists begin loading before bean discovery, and each injection
+ * point it lists is validated once the resources are loaded.
+ *
+ * When the system property {@value #EAGER_CONVERSION_PROPERTY} is
+ * <code>true</code>, the value of each {@link Property} injection point is
+ * also resolved and converted once during deployment. An invalid value fails
+ * the deployment, and the producers return the converted value until the
+ * resource it was read from is reloaded. Values given by system properties
+ * are fixed at deployment in this mode.
+ */
 public class PropertyInjectionExtension implements Extension {
 
+    public static final String PRELOAD_PROPERTY = "io.xlate.inject.preload";
+    public static final String PRELOAD_THREADS_PROPERTY = "io.xlate.inject.preloadThreads";
+    public static final String EAGER_CONVERSION_PROPERTY = "io.xlate.inject.eagerConversion";
+
     private static final Logger logger = Logger.getLogger(PropertyInjectionExtension.class.getName());
 
+    private final PropertyResourceRegistry registry = new PropertyResourceRegistry();
+    private final PropertyFactory factory = new PropertyFactory(registry);
+    private final boolean preload;
+    private final int preloadThreads;
+    private final boolean eagerConversion;
+    private final List<InjectionPoint> conversions = new CopyOnWriteArrayList<>();
+    private final Map<String, Callable<PropertySnapshot>> preloadTasks = new ConcurrentHashMap<>();
+    private final Map<String, Future<PropertySnapshot>> preloading = new ConcurrentHashMap<>();
+    private final Set<String> failedPreloads = ConcurrentHashMap.newKeySet();
+    private List<PropertyManifest.Entry> manifest;
+    private IOException manifestFailure;
+
+    public PropertyInjectionExtension() {
+        this(Boolean.parseBoolean(System.getProperty(PRELOAD_PROPERTY, "true")),
+             Integer.getInteger(PRELOAD_THREADS_PROPERTY, Math.max(2, Runtime.getRuntime().availableProcessors())),
+             Boolean.getBoolean(EAGER_CONVERSION_PROPERTY));
+    }
+
+    PropertyInjectionExtension(boolean preload, int preloadThreads, boolean eagerConversion) {
+        this.preload = preload;
+        this.preloadThreads = Math.max(1, preloadThreads);
+        this.eagerConversion = eagerConversion;
+    }
+
     void beforeBeanDiscovery(@Observes BeforeBeanDiscovery event, BeanManager beanManager) {
         final String method = "PropertyInjectionExtension.beforeBeanDiscovery()";
 
@@ -37,6 +109,66 @@ public class PropertyInjectionExtension implements Extension {
 
         addAnnotatedType(event, beanManager, PropertyProducerBean.class);
         addAnnotatedType(event, beanManager, PropertyResourceProducerBean.class);
+
+        preloadManifest(contextClassLoader());
+    }
+
+    static ClassLoader contextClassLoader() {
+        final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        return loader != null ? loader : PropertyInjectionExtension.class.getClassLoader();
+    }
+
+    /*
+     * Reads the manifests generated by PropertyManifestProcessor and starts
+     * loading the resources they list, without waiting for the container to
+     * discover the injection points.
+     */
+    void preloadManifest(ClassLoader loader) {
+        final String method = "PropertyInjectionExtension.preloadManifest()";
+
+        try {
+            manifest = PropertyManifest.load(loader);
+        } catch (IOException e) {
+            manifest = Collections.emptyList();
+            manifestFailure = e;
+            return;
+        }
+
+        if (!preload || manifest.isEmpty()) {
+            return;
+        }
+
+        for (PropertyManifest.Entry entry : manifest) {
+            try {
+                final Class<?> beanType = Class.forName(entry.beanClass, false, loader);
+
+                if (entry.kind == PropertyManifest.Kind.PROPERTY
+                        && factory.getSystemProperty(beanType, entry.systemProperty, entry.name) != null) {
+                    continue;
+                }
+
+                final URL resourceUrl = factory.getResourceUrl(entry.location, entry.resolveLocationEnvironment, beanType);
+                preloadTasks.putIfAbsent(resourceUrl.toString(), () -> load(resourceUrl, entry));
+            } catch (Exception e) {
+                // Reported when the entry is validated
+                logger.log(Level.FINEST, "Unable to preload resource for " + entry, e);
+            }
+        }
+
+        preload();
+
+        if (logger.isLoggable(Level.FINER)) {
+            logger.log(Level.FINER, method + " preloading resources: " + preloading.keySet());
+        }
+    }
+
+    PropertySnapshot load(URL resourceUrl, PropertyManifest.Entry entry) throws IOException {
+        return registry.getSnapshot(resourceUrl,
+                                    entry.format,
+                                    entry.allowMissingResource,
+                                    Duration.ofSeconds(entry.refreshInterval),
+                                    entry.watch,
+                                    entry.mapped);
     }
 
     void addAnnotatedType(BeforeBeanDiscovery event, BeanManager beanManager, Class<?> type) {
@@ -48,4 +180,250 @@ public class PropertyInjectionExtension implements Extension {
             logger.log(Level.FINER, method + " added type: " + type.getName());
         }
     }
+
+    /*
+     * Collects the distinct resources needed by the injection points. A
+     * property overridden by a system property does not need its resource.
+     */
+    void processInjectionPoint(@Observes ProcessInjectionPoint<?, ?> event) {
+        final InjectionPoint point = event.getInjectionPoint();
+
+        if (point.getMember() == null) {
+            return;
+        }
+
+        final Property property = point.getAnnotated().getAnnotation(Property.class);
+
+        if (property != null && eagerConversion) {
+            conversions.add(point);
+        }
+
+        if (!preload) {
+            return;
+        }
+
+        final PropertyResource resource;
+        final Class<?> beanType = point.getMember().getDeclaringClass();
+
+        if (property != null) {
+            final String propertyName = factory.getPropertyName(point, property.name());
+
+            if (factory.getSystemProperty(beanType, property.systemProperty(), propertyName) != null) {
+                return;
+            }
+
+            resource = property.resource();
+        } else {
+            resource = point.getAnnotated().getAnnotation(PropertyResource.class);
+        }
+
+        if (resource == null) {
+            return;
+        }
+
+        try {
+            final URL resourceUrl = factory.getResourceUrl(resource, beanType);
+            final String resourceId = resourceUrl.toString();
+
+            if (!preloading.containsKey(resourceId)) {
+                preloadTasks.putIfAbsent(resourceId, () -> factory.getSnapshot(resourceUrl, resource));
+            }
+        } catch (Exception e) {
+            event.addDefinitionError(e);
+        }
+    }
+
+    void afterBeanDiscovery(@Observes AfterBeanDiscovery event) {
+        final String method = "PropertyInjectionExtension.afterBeanDiscovery()";
+
+        preload();
+
+        event.addBean()
+             .beanClass(PropertyResourceRegistry.class)
+             .types(PropertyResourceRegistry.class, Object.class)
+             .scope(Singleton.class)
+             .createWith(context -> registry);
+
+        if (logger.isLoggable(Level.FINER)) {
+            logger.log(Level.FINER, method + " added bean: " + PropertyResourceRegistry.class.getName());
+        }
+    }
+
+    /*
+     * Starts loading the collected resources on a bounded pool of daemon
+     * threads that exits once all resources have been loaded.
+     */
+    void preload() {
+        if (preloadTasks.isEmpty()) {
+            return;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(preloadThreads, preloadTasks.size()), task -> {
+            Thread thread = new Thread(task, "property-inject-preload");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            preloadTasks.forEach((resourceId, task) -> preloading.computeIfAbsent(resourceId, id -> executor.submit(task)));
+        } finally {
+            executor.shutdown();
+            preloadTasks.clear();
+        }
+    }
+
+    void awaitPreload(AfterDeploymentValidation event) {
+        final String method = "PropertyInjectionExtension.awaitPreload()";
+        final List<String> loaded = new ArrayList<>(preloading.size());
+
+        for (Map.Entry<String, Future<PropertySnapshot>> entry : preloading.entrySet()) {
+            try {
+                entry.getValue().get();
+                loaded.add(entry.getKey());
+            } catch (ExecutionException e) {
+                failedPreloads.add(entry.getKey());
+                event.addDeploymentProblem(new DeploymentException("Unable to load property resource " + entry.getKey(), e.getCause()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                event.addDeploymentProblem(new DeploymentException("Interrupted loading property resource " + entry.getKey(), e));
+                break;
+            }
+        }
+
+        preloading.clear();
+
+        if (logger.isLoggable(Level.FINER)) {
+            logger.log(Level.FINER, method + " preloaded resources: " + loaded);
+        }
+    }
+
+    void convertValues(AfterDeploymentValidation event) {
+        final String method = "PropertyInjectionExtension.convertValues()";
+        final PropertyProducerBean producer = new PropertyProducerBean(registry);
+        int converted = 0;
+
+        for (InjectionPoint point : conversions) {
+            try {
+                if (producer.convert(point)) {
+                    converted++;
+                }
+            } catch (Exception e) {
+                event.addDeploymentProblem(new DeploymentException("Invalid value for property injection point " + point, e));
+            }
+        }
+
+        conversions.clear();
+
+        if (logger.isLoggable(Level.FINER)) {
+            logger.log(Level.FINER, method + " converted values: " + converted);
+        }
+    }
+
+    /*
+     * Waits for the preloaded resources, then converts the values listed in
+     * the manifests generated by PropertyManifestProcessor, if any.
+     */
+    void afterDeploymentValidation(@Observes AfterDeploymentValidation event) {
+        registry.start();
+        awaitPreload(event);
+        convertValues(event);
+        validateManifest(event, contextClassLoader());
+    }
+
+    void validateManifest(AfterDeploymentValidation event, ClassLoader loader) {
+        final String method = "PropertyInjectionExtension.validateManifest()";
+
+        if (manifest == null) {
+            preloadManifest(loader);
+            awaitPreload(event);
+        }
+
+        final List<PropertyManifest.Entry> entries = manifest;
+
+        if (manifestFailure != null) {
+            event.addDeploymentProblem(new DeploymentException("Unable to read " + PropertyManifest.LOCATION, manifestFailure));
+            return;
+        }
+
+        for (PropertyManifest.Entry entry : entries) {
+            try {
+                validate(entry, loader);
+            } catch (Exception e) {
+                event.addDeploymentProblem(new DeploymentException("Invalid property injection point " + entry + ": " + e, e));
+            }
+        }
+
+        if (logger.isLoggable(Level.FINER)) {
+            logger.log(Level.FINER, method + " validated injection points: " + entries.size());
+        }
+    }
+
+    /*
+     * Resolves the value of the injection point in the same order as the
+     * producers: system property, then the resource, then the default value.
+     */
+    void validate(PropertyManifest.Entry entry, ClassLoader loader) throws Exception {
+        final Class<?> beanType = Class.forName(entry.beanClass, false, loader);
+        String value = null;
+
+        if (entry.kind == PropertyManifest.Kind.PROPERTY) {
+            value = factory.getSystemProperty(beanType, entry.systemProperty, entry.name);
+        }
+
+        if (value == null) {
+            final URL resourceUrl = factory.getResourceUrl(entry.location, entry.resolveLocationEnvironment, beanType);
+
+            if (failedPreloads.contains(resourceUrl.toString())) {
+                // Already reported as a deployment problem
+                return;
+            }
+
+            PropertySnapshot snapshot = load(resourceUrl, entry);
+
+            if (entry.interpolate) {
+                snapshot = factory.interpolate(snapshot);
+            }
+
+            if (entry.kind == PropertyManifest.Kind.RESOURCE) {
+                return;
+            }
+
+            value = factory.getProperty(snapshot, entry.name, entry.defaultValue);
+        }
+
+        if (value != null && entry.resolveEnvironment) {
+            value = factory.replaceEnvironmentReferences(value);
+        }
+
+        final Class<?> type = valueType(entry.type, loader);
+
+        if (PropertyConverters.isSupported(type)) {
+            PropertyConverters.convert(type, value, entry.pattern);
+        }
+    }
+
+    static Class<?> valueType(String typeName, ClassLoader loader) throws ClassNotFoundException {
+        switch (typeName) {
+        case "boolean":
+            return Boolean.class;
+        case "int":
+            return Integer.class;
+        case "long":
+            return Long.class;
+        case "float":
+            return Float.class;
+        case "double":
+            return Double.class;
+        default:
+            return Class.forName(typeName, false, loader);
+        }
+    }
+
+    void beforeShutdown(@Observes BeforeShutdown event) {
+        registry.shutdown();
+    }
+
+    PropertyResourceRegistry getRegistry() {
+        return registry;
+    }
 }
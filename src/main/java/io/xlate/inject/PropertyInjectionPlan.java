@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import java.net.URL;
+
+/**
+ * Immutable result of resolving the annotations of an injection point: the
+ * property name, the system property name and the location of the resource.
+ * Created once per field or parameter and reused for each injection.
+ */
+final class PropertyInjectionPlan {
+
+    final PropertyResource resource;
+    final URL resourceUrl;
+    final String propertyName;
+    final String systemProperty;
+    final String defaultValue;
+    final String pattern;
+    final boolean resolveEnvironment;
+
+    /*
+     * Plan for a Properties injection point.
+     */
+    PropertyInjectionPlan(PropertyResource resource, URL resourceUrl) {
+        this(resource, resourceUrl, null, null, Property.DEFAULT_NULL, "", false);
+    }
+
+    PropertyInjectionPlan(PropertyResource resource,
+                          URL resourceUrl,
+                          String propertyName,
+                          String systemProperty,
+                          String defaultValue,
+                          String pattern,
+                          boolean resolveEnvironment) {
+        this.resource = resource;
+        this.resourceUrl = resourceUrl;
+        this.propertyName = propertyName;
+        this.systemProperty = systemProperty;
+        this.defaultValue = defaultValue;
+        this.pattern = pattern;
+        this.resolveEnvironment = resolveEnvironment;
+    }
+
+    String resourceId() {
+        return resourceUrl.toString();
+    }
+}
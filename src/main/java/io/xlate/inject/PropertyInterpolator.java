@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.InvalidPropertiesFormatException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * Expands references in the values of a snapshot, producing a new snapshot
+ * in which every value is fully resolved. Supported references are:
+ *
+ * <ul>
+ * <li><code>${env.NAME}</code> - an environment variable
+ * <li><code>${sys.name}</code> - a system property
+ * <li><code>${key}</code> - another property of the same resource
+ * </ul>
+ *
+ * Each reference may give a default following a colon, which may itself
+ * contain references, e.g. <code>${a:${b:fallback}}</code>. The default is
+ * only expanded when the referenced value does not exist. A reference
+ * without a default that can not be resolved is replaced with an empty
+ * string, as for environment references.
+ *
+ * Keys are resolved depth-first, so each key is expanded after the keys it
+ * refers to, and each result is memoized so a key is expanded only once.
+ * A key that refers back to itself, directly or through other keys, makes
+ * the resource invalid.
+ */
+final class PropertyInterpolator {
+
+    static final String ENV_PREFIX = "env.";
+    static final String SYS_PREFIX = "sys.";
+
+    private final PropertySnapshot source;
+    private final Map<String, String> environment;
+    private final UnaryOperator<String> systemProperties;
+    private final Map<String, String> resolved = new HashMap<>();
+    private final Set<String> resolving = new LinkedHashSet<>();
+
+    PropertyInterpolator(PropertySnapshot source, Map<String, String> environment, UnaryOperator<String> systemProperties) {
+        this.source = source;
+        this.environment = environment;
+        this.systemProperties = systemProperties;
+    }
+
+    /*
+     * Returns the source itself when no value contains a reference.
+     */
+    static PropertySnapshot interpolate(PropertySnapshot source,
+                                        Map<String, String> environment,
+                                        UnaryOperator<String> systemProperties) throws InvalidPropertiesFormatException {
+
+        final List<String> keys = new ArrayList<>(source.size());
+        final boolean[] references = new boolean[1];
+
+        source.forEach((key, value) -> {
+            keys.add(key);
+            references[0] |= value.contains("${");
+        });
+
+        if (!references[0]) {
+            return source;
+        }
+
+        final PropertyInterpolator interpolator = new PropertyInterpolator(source, environment, systemProperties);
+        final PropertySnapshot.Builder builder = new PropertySnapshot.Builder();
+
+        for (String key : keys) {
+            builder.put(key, interpolator.resolve(key));
+        }
+
+        return builder.build();
+    }
+
+    String resolve(String key) throws InvalidPropertiesFormatException {
+        final String value = source.get(key);
+
+        if (value == null || value.indexOf("${") < 0) {
+            return value;
+        }
+
+        String result = resolved.get(key);
+
+        if (result == null) {
+            if (!resolving.add(key)) {
+                throw new InvalidPropertiesFormatException("Circular property reference: "
+                        + String.join(" -> ", resolving) + " -> " + key);
+            }
+
+            result = expand(value);
+            resolving.remove(key);
+            resolved.put(key, result);
+        }
+
+        return result;
+    }
+
+    String expand(String value) throws InvalidPropertiesFormatException {
+        final int length = value.length();
+        StringBuilder result = null;
+        int start = 0;
+        int open;
+
+        while ((open = value.indexOf("${", start)) >= 0) {
+            final int close = closingBrace(value, open + 2);
+
+            if (close < 0) {
+                // Unterminated, treated as literal text
+                break;
+            }
+
+            if (result == null) {
+                result = new StringBuilder(length);
+            }
+
+            result.append(value, start, open);
+            result.append(reference(value.substring(open + 2, close)));
+            start = close + 1;
+        }
+
+        if (result == null) {
+            return value;
+        }
+
+        return result.append(value, start, length).toString();
+    }
+
+    /*
+     * Position of the brace closing a reference whose name begins at the
+     * given offset, skipping over references nested in its default.
+     */
+    static int closingBrace(String value, int offset) {
+        final int length = value.length();
+        int depth = 0;
+
+        for (int i = offset; i < length; i++) {
+            final char c = value.charAt(i);
+
+            if (c == '$' && i + 1 < length && value.charAt(i + 1) == '{') {
+                depth++;
+                i++;
+            } else if (c == '}') {
+                if (depth == 0) {
+                    return i;
+                }
+                depth--;
+            }
+        }
+
+        return -1;
+    }
+
+    String reference(String body) throws InvalidPropertiesFormatException {
+        final int separator = body.indexOf(':');
+        final String name = separator < 0 ? body : body.substring(0, separator);
+        final String value;
+
+        if (name.startsWith(ENV_PREFIX)) {
+            value = environment.get(name.substring(ENV_PREFIX.length()));
+        } else if (name.startsWith(SYS_PREFIX)) {
+            value = systemProperties.apply(name.substring(SYS_PREFIX.length()));
+        } else {
+            value = resolve(name);
+        }
+
+        if (value != null) {
+            return value;
+        }
+
+        return separator < 0 ? "" : expand(body.substring(separator + 1));
+    }
+}
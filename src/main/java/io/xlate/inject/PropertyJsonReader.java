@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.InvalidPropertiesFormatException;
+import java.util.function.BiConsumer;
+
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParserFactory;
+
+/**
+ * Streaming reader for resources in JSON format. Nested objects and arrays
+ * are flattened into keys using a dot between object member names and a
+ * bracketed index for array elements, e.g. <code>db.hosts[0]</code>. Strings
+ * and numbers are used as they appear in the document and booleans as
+ * <code>true</code> or <code>false</code>. Null values, empty objects and
+ * empty arrays do not result in a property. The document is read in a single
+ * pass without building a {@link javax.json.JsonStructure}.
+ *
+ * This class requires the optional JSON Processing API and is only loaded
+ * when a resource in JSON format is used.
+ */
+final class PropertyJsonReader {
+
+    private static final JsonParserFactory factory = Json.createParserFactory(null);
+
+    private final BiConsumer<String, String> consumer;
+    private final StringBuilder path = new StringBuilder();
+    /* Length of the path when each open object or array was started */
+    private int[] starts = new int[16];
+    /* Index of the next element of each open array, -1 for an object */
+    private int[] indexes = new int[16];
+    private int depth;
+    private String name;
+
+    private PropertyJsonReader(BiConsumer<String, String> consumer) {
+        this.consumer = consumer;
+    }
+
+    static void read(InputStream stream, BiConsumer<String, String> consumer) throws IOException {
+        try (JsonParser parser = factory.createParser(stream)) {
+            new PropertyJsonReader(consumer).read(parser);
+        } catch (JsonException e) {
+            throw new InvalidPropertiesFormatException(e);
+        }
+    }
+
+    private void read(JsonParser parser) throws InvalidPropertiesFormatException {
+        while (parser.hasNext()) {
+            final JsonParser.Event event = parser.next();
+
+            switch (event) {
+            case KEY_NAME:
+                name = parser.getString();
+                break;
+            case START_OBJECT:
+                start(-1);
+                break;
+            case START_ARRAY:
+                start(0);
+                break;
+            case END_OBJECT:
+            case END_ARRAY:
+                depth--;
+                path.setLength(starts[depth]);
+                break;
+            case VALUE_STRING:
+            case VALUE_NUMBER:
+                value(parser.getString());
+                break;
+            case VALUE_TRUE:
+                value("true");
+                break;
+            case VALUE_FALSE:
+                value("false");
+                break;
+            case VALUE_NULL:
+                value(null);
+                break;
+            default:
+                break;
+            }
+        }
+    }
+
+    private void start(int index) {
+        final int start = path.length();
+
+        if (depth > 0) {
+            appendName();
+        }
+
+        if (depth == starts.length) {
+            starts = Arrays.copyOf(starts, depth * 2);
+            indexes = Arrays.copyOf(indexes, depth * 2);
+        }
+
+        starts[depth] = start;
+        indexes[depth] = index;
+        depth++;
+    }
+
+    private void value(String value) throws InvalidPropertiesFormatException {
+        if (depth == 0) {
+            throw new InvalidPropertiesFormatException("JSON properties resource must contain an object or an array");
+        }
+
+        final int start = path.length();
+        appendName();
+
+        if (value != null) {
+            consumer.accept(path.toString(), value);
+        }
+
+        path.setLength(start);
+    }
+
+    /*
+     * Append the name of the next value in the current object or array.
+     */
+    private void appendName() {
+        final int parent = depth - 1;
+
+        if (indexes[parent] < 0) {
+            if (path.length() > 0) {
+                path.append('.');
+            }
+            path.append(name);
+        } else {
+            path.append('[').append(indexes[parent]++).append(']');
+        }
+    }
+}
@@ -0,0 +1,441 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads the logical lines of a resource in properties format directly from a
+ * buffer, following the rules of {@link java.util.Properties#load} for
+ * comments, line continuations, key/value separators and escape sequences.
+ *
+ * A {@link ByteBuffer} is decoded as ISO-8859-1, equivalent to
+ * {@link java.util.Properties#load(InputStream)}. Resources using another
+ * character set are decoded to a {@link CharBuffer} in bulk, equivalent to
+ * {@link java.util.Properties#load(java.io.Reader)}. The buffer is accessed
+ * using absolute positions only, allowing several readers to share a buffer.
+ *
+ * Lines without escape sequences or continuations are not copied before
+ * keys and values are created from them.
+ */
+final class PropertyLineReader {
+
+    private final ByteBuffer bytes;
+    private final CharBuffer chars;
+    private final byte[] byteArray;
+    private final char[] charArray;
+    private final int arrayOffset;
+    private final int limit;
+    private int position;
+
+    /* Holds the current line only once it is no longer contiguous in the buffer */
+    private char[] line = new char[80];
+    private boolean buffered;
+    private boolean escaped;
+    private int length;
+    private int lineStart;
+    private int keyLength;
+    private int valueStart;
+    private char[] decoded = new char[80];
+
+    PropertyLineReader(ByteBuffer buffer) {
+        this(buffer, 0);
+    }
+
+    PropertyLineReader(ByteBuffer buffer, int position) {
+        this.bytes = buffer;
+        this.chars = null;
+        this.byteArray = buffer.hasArray() ? buffer.array() : null;
+        this.charArray = null;
+        this.arrayOffset = buffer.hasArray() ? buffer.arrayOffset() : 0;
+        this.limit = buffer.limit();
+        this.position = position;
+    }
+
+    PropertyLineReader(CharBuffer buffer) {
+        this.bytes = null;
+        this.chars = buffer;
+        this.byteArray = null;
+        this.charArray = buffer.hasArray() ? buffer.array() : null;
+        this.arrayOffset = buffer.hasArray() ? buffer.arrayOffset() : 0;
+        this.limit = buffer.limit();
+        this.position = 0;
+    }
+
+    /*
+     * Reads the remainder of the stream and creates a reader for its content
+     * using the given character set. Malformed input is replaced, consistent
+     * with an InputStreamReader.
+     */
+    static PropertyLineReader of(InputStream stream, Charset charset) throws IOException {
+        final ByteBuffer buffer = read(stream);
+
+        if (StandardCharsets.ISO_8859_1.equals(charset)) {
+            return new PropertyLineReader(buffer);
+        }
+
+        return new PropertyLineReader(charset.decode(buffer));
+    }
+
+    /*
+     * Reads the remaining content of the stream into a heap buffer.
+     */
+    static ByteBuffer read(InputStream stream) throws IOException {
+        byte[] content = new byte[8192];
+        int length = 0;
+        int count;
+
+        while ((count = stream.read(content, length, content.length - length)) >= 0) {
+            length += count;
+
+            if (length == content.length) {
+                content = Arrays.copyOf(content, content.length * 2);
+            }
+        }
+
+        return ByteBuffer.wrap(content, 0, length);
+    }
+
+    /*
+     * Offset in the buffer of the first character of the current line. A new
+     * reader created at this offset will read the same line.
+     */
+    int lineStart() {
+        return lineStart;
+    }
+
+    private char charAt(int index) {
+        if (byteArray != null) {
+            return (char) (byteArray[arrayOffset + index] & 0xFF);
+        }
+        if (charArray != null) {
+            return charArray[arrayOffset + index];
+        }
+        return bytes != null ? (char) (bytes.get(index) & 0xFF) : chars.get(index);
+    }
+
+    private char lineAt(int index) {
+        return buffered ? line[index] : charAt(lineStart + index);
+    }
+
+    /*
+     * Reads the next logical line, skipping blank lines and comments.
+     *
+     * @return false when the end of the buffer has been reached
+     */
+    boolean readLine() {
+        boolean skipWhiteSpace = true;
+        boolean appendedLineBegin = false;
+        boolean precedingBackslash = false;
+
+        length = 0;
+        buffered = false;
+        escaped = false;
+
+        for (;;) {
+            if (position >= limit) {
+                if (length == 0) {
+                    return false;
+                }
+                return endLine(precedingBackslash);
+            }
+
+            final char c = charAt(position++);
+
+            if (skipWhiteSpace) {
+                if (c == ' ' || c == '\t' || c == '\f') {
+                    continue;
+                }
+                if (!appendedLineBegin && (c == '\r' || c == '\n')) {
+                    continue;
+                }
+                skipWhiteSpace = false;
+                appendedLineBegin = false;
+            }
+
+            /*
+             * Only the start of a logical line may begin a comment. A comment
+             * character on a continuation line is content, unless nothing
+             * precedes it, as in Properties.load since Java 9.
+             */
+            if (length == 0 && (c == '#' || c == '!')) {
+                skipComment();
+                skipWhiteSpace = true;
+                continue;
+            }
+
+            if (c != '\n' && c != '\r') {
+                if (buffered) {
+                    if (length == line.length) {
+                        line = Arrays.copyOf(line, length * 2);
+                    }
+                    line[length] = c;
+                } else if (length == 0) {
+                    lineStart = position - 1;
+                }
+
+                length++;
+
+                if (c == '\\') {
+                    escaped = true;
+                    precedingBackslash = !precedingBackslash;
+                } else {
+                    precedingBackslash = false;
+                }
+            } else if (length == 0) {
+                skipWhiteSpace = true;
+            } else if (position >= limit) {
+                return endLine(precedingBackslash);
+            } else if (precedingBackslash) {
+                // Backslash at the end of a line is not part of the line
+                length--;
+                bufferLine();
+                skipWhiteSpace = true;
+                appendedLineBegin = true;
+                precedingBackslash = false;
+
+                if (c == '\r' && charAt(position) == '\n') {
+                    position++;
+                }
+            } else {
+                split();
+                return true;
+            }
+        }
+    }
+
+    private boolean endLine(boolean precedingBackslash) {
+        if (precedingBackslash) {
+            length--;
+        }
+        split();
+        return true;
+    }
+
+    private void skipComment() {
+        while (position < limit) {
+            final char c = charAt(position++);
+
+            if (c == '\r' || c == '\n') {
+                return;
+            }
+        }
+    }
+
+    /*
+     * Copy the contiguous portion of the line read so far, subsequent
+     * characters are appended to the copy.
+     */
+    private void bufferLine() {
+        if (buffered) {
+            return;
+        }
+
+        if (line.length < length + 80) {
+            line = new char[length + 80];
+        }
+
+        for (int i = 0; i < length; i++) {
+            line[i] = charAt(lineStart + i);
+        }
+
+        buffered = true;
+    }
+
+    private void split() {
+        int keyEnd = 0;
+        int start = length;
+        boolean hasSeparator = false;
+        boolean precedingBackslash = false;
+
+        while (keyEnd < length) {
+            final char c = lineAt(keyEnd);
+
+            if ((c == '=' || c == ':') && !precedingBackslash) {
+                start = keyEnd + 1;
+                hasSeparator = true;
+                break;
+            } else if ((c == ' ' || c == '\t' || c == '\f') && !precedingBackslash) {
+                start = keyEnd + 1;
+                break;
+            }
+
+            precedingBackslash = c == '\\' ? !precedingBackslash : false;
+            keyEnd++;
+        }
+
+        while (start < length) {
+            final char c = lineAt(start);
+
+            if (c != ' ' && c != '\t' && c != '\f') {
+                if (!hasSeparator && (c == '=' || c == ':')) {
+                    hasSeparator = true;
+                } else {
+                    break;
+                }
+            }
+            start++;
+        }
+
+        keyLength = keyEnd;
+        valueStart = start;
+    }
+
+    String key() {
+        return string(0, keyLength);
+    }
+
+    String value() {
+        return string(valueStart, length - valueStart);
+    }
+
+    private String string(int offset, int count) {
+        if (!escaped) {
+            if (buffered) {
+                return new String(line, offset, count);
+            }
+            if (byteArray != null) {
+                return new String(byteArray, arrayOffset + lineStart + offset, count, StandardCharsets.ISO_8859_1);
+            }
+            if (charArray != null) {
+                return new String(charArray, arrayOffset + lineStart + offset, count);
+            }
+        }
+
+        return new String(decoded, 0, decode(offset, count));
+    }
+
+    /*
+     * Equivalent to key().hashCode() without creating the key.
+     */
+    int keyHash() {
+        int hash = 0;
+
+        if (escaped) {
+            final int decodedLength = decode(0, keyLength);
+
+            for (int i = 0; i < decodedLength; i++) {
+                hash = 31 * hash + decoded[i];
+            }
+        } else {
+            for (int i = 0; i < keyLength; i++) {
+                hash = 31 * hash + lineAt(i);
+            }
+        }
+
+        return hash;
+    }
+
+    /*
+     * Equivalent to key().equals(key) without creating the key.
+     */
+    boolean keyEquals(String key) {
+        if (!escaped) {
+            if (keyLength != key.length()) {
+                return false;
+            }
+
+            for (int i = 0; i < keyLength; i++) {
+                if (lineAt(i) != key.charAt(i)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        final int decodedLength = decode(0, keyLength);
+
+        if (decodedLength != key.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < decodedLength; i++) {
+            if (decoded[i] != key.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * Converts escape sequences in the given range of the current line,
+     * placing the result at the start of the decoded buffer.
+     */
+    private int decode(int offset, int count) {
+        final int end = offset + count;
+        int out = 0;
+
+        if (decoded.length < count) {
+            decoded = new char[Math.max(count, decoded.length * 2)];
+        }
+
+        while (offset < end) {
+            char c = lineAt(offset++);
+
+            if (c == '\\' && offset < end) {
+                c = lineAt(offset++);
+
+                if (c == 'u') {
+                    if (offset > end - 4) {
+                        throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+                    }
+
+                    int value = 0;
+
+                    for (int i = 0; i < 4; i++) {
+                        value = (value << 4) + hexDigit(lineAt(offset++));
+                    }
+
+                    c = (char) value;
+                } else if (c == 't') {
+                    c = '\t';
+                } else if (c == 'r') {
+                    c = '\r';
+                } else if (c == 'n') {
+                    c = '\n';
+                } else if (c == 'f') {
+                    c = '\f';
+                }
+            }
+
+            decoded[out++] = c;
+        }
+
+        return out;
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return 10 + c - 'a';
+        }
+        if (c >= 'A' && c <= 'F') {
+            return 10 + c - 'A';
+        }
+        throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+    }
+}
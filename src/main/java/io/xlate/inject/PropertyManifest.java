@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Manifest of the {@link Property} and {@link PropertyResource} injection
+ * points of an application, generated at compile time by
+ * {@link PropertyManifestProcessor} and read by
+ * {@link PropertyInjectionExtension} to load and validate the referenced
+ * resources and values during deployment.
+ *
+ * The manifest is stored in properties format at {@value #LOCATION}, with the
+ * attributes of each injection point prefixed by its index, e.g.
+ * <code>0.class</code>, <code>0.name</code>, <code>1.class</code>.
+ */
+final class PropertyManifest {
+
+    static final String LOCATION = "META-INF/io.xlate.inject/property-manifest.properties";
+
+    enum Kind {
+        PROPERTY,
+        RESOURCE
+    }
+
+    /**
+     * An injection point listed in the manifest. Property names and system
+     * property names are resolved at compile time, while the resource
+     * location is kept as written in the annotation.
+     */
+    static final class Entry {
+        Kind kind = Kind.PROPERTY;
+        String beanClass;
+        String member;
+        String type;
+
+        String name = "";
+        String systemProperty = "";
+        String defaultValue = Property.DEFAULT_NULL;
+        String pattern = "";
+        boolean resolveEnvironment;
+
+        String location = "";
+        PropertyResourceFormat format = PropertyResourceFormat.PROPERTIES;
+        boolean resolveLocationEnvironment;
+        boolean allowMissingResource;
+        long refreshInterval;
+        boolean watch;
+        boolean mapped;
+        boolean interpolate;
+
+        @Override
+        public String toString() {
+            return beanClass + '#' + member;
+        }
+    }
+
+    private PropertyManifest() {
+    }
+
+    static List<Entry> load(ClassLoader loader) throws IOException {
+        final List<Entry> entries = new ArrayList<>();
+        final Enumeration<URL> manifests = loader.getResources(LOCATION);
+
+        while (manifests.hasMoreElements()) {
+            try (InputStream stream = manifests.nextElement().openStream()) {
+                entries.addAll(read(stream));
+            }
+        }
+
+        return entries;
+    }
+
+    static List<Entry> read(InputStream stream) throws IOException {
+        final Properties manifest = new Properties();
+        manifest.load(stream);
+
+        final List<Entry> entries = new ArrayList<>();
+
+        for (int i = 0; manifest.containsKey(i + ".class"); i++) {
+            final String prefix = i + ".";
+            final Entry entry = new Entry();
+            entry.kind = Kind.valueOf(manifest.getProperty(prefix + "kind", Kind.PROPERTY.name()));
+            entry.beanClass = manifest.getProperty(prefix + "class");
+            entry.member = manifest.getProperty(prefix + "member", "");
+            entry.type = manifest.getProperty(prefix + "type", String.class.getName());
+
+            entry.name = manifest.getProperty(prefix + "name", "");
+            entry.systemProperty = manifest.getProperty(prefix + "systemProperty", "");
+            entry.defaultValue = manifest.getProperty(prefix + "defaultValue", Property.DEFAULT_NULL);
+            entry.pattern = manifest.getProperty(prefix + "pattern", "");
+            entry.resolveEnvironment = Boolean.parseBoolean(manifest.getProperty(prefix + "resolveEnvironment"));
+
+            entry.location = manifest.getProperty(prefix + "resource", "");
+            entry.format = PropertyResourceFormat.valueOf(manifest.getProperty(prefix + "resource.format",
+                                                                              PropertyResourceFormat.PROPERTIES.name()));
+            entry.resolveLocationEnvironment = Boolean.parseBoolean(manifest.getProperty(prefix + "resource.resolveEnvironment"));
+            entry.allowMissingResource = Boolean.parseBoolean(manifest.getProperty(prefix + "resource.allowMissingResource"));
+            entry.refreshInterval = Long.parseLong(manifest.getProperty(prefix + "resource.refreshInterval", "0"));
+            entry.watch = Boolean.parseBoolean(manifest.getProperty(prefix + "resource.watch"));
+            entry.mapped = Boolean.parseBoolean(manifest.getProperty(prefix + "resource.mapped"));
+            entry.interpolate = Boolean.parseBoolean(manifest.getProperty(prefix + "resource.interpolate"));
+            entries.add(entry);
+        }
+
+        return entries;
+    }
+
+    /*
+     * Writes the entries in a stable order without the timestamp written by
+     * Properties#store, so that unchanged sources produce the same manifest.
+     * Characters outside ISO-8859-1 are written as Unicode escapes.
+     */
+    static void write(List<Entry> entries, OutputStream output) throws IOException {
+        final Writer writer = new OutputStreamWriter(output, StandardCharsets.ISO_8859_1);
+
+        for (int i = 0; i < entries.size(); i++) {
+            final String prefix = i + ".";
+            final Entry entry = entries.get(i);
+            final Properties attributes = new Properties();
+            attributes.setProperty(prefix + "kind", entry.kind.name());
+            attributes.setProperty(prefix + "class", entry.beanClass);
+            attributes.setProperty(prefix + "member", entry.member);
+            attributes.setProperty(prefix + "type", entry.type);
+
+            if (entry.kind == Kind.PROPERTY) {
+                attributes.setProperty(prefix + "name", entry.name);
+                attributes.setProperty(prefix + "systemProperty", entry.systemProperty);
+                attributes.setProperty(prefix + "defaultValue", entry.defaultValue);
+                attributes.setProperty(prefix + "pattern", entry.pattern);
+                attributes.setProperty(prefix + "resolveEnvironment", String.valueOf(entry.resolveEnvironment));
+            }
+
+            attributes.setProperty(prefix + "resource", entry.location);
+            attributes.setProperty(prefix + "resource.format", entry.format.name());
+            attributes.setProperty(prefix + "resource.resolveEnvironment", String.valueOf(entry.resolveLocationEnvironment));
+            attributes.setProperty(prefix + "resource.allowMissingResource", String.valueOf(entry.allowMissingResource));
+            attributes.setProperty(prefix + "resource.refreshInterval", String.valueOf(entry.refreshInterval));
+            attributes.setProperty(prefix + "resource.watch", String.valueOf(entry.watch));
+            attributes.setProperty(prefix + "resource.mapped", String.valueOf(entry.mapped));
+            attributes.setProperty(prefix + "resource.interpolate", String.valueOf(entry.interpolate));
+
+            final ByteArrayOutputStream content = new ByteArrayOutputStream();
+            attributes.store(content, null);
+            final List<String> lines = new ArrayList<>();
+
+            try (BufferedReader reader = new BufferedReader(new StringReader(new String(content.toByteArray(), StandardCharsets.ISO_8859_1)))) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    if (!line.startsWith("#")) {
+                        lines.add(line);
+                    }
+                }
+            }
+
+            Collections.sort(lines);
+
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        }
+
+        writer.flush();
+    }
+}
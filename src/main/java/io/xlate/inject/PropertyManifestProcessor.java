@@ -0,0 +1,313 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation processor that lists the {@link Property} and
+ * {@link PropertyResource} injection points (fields and parameters) of the
+ * compiled classes in a manifest. When the manifest is present at runtime,
+ * {@link PropertyInjectionExtension} loads the referenced resources and
+ * converts the referenced values during deployment, reporting any failure as
+ * a deployment problem rather than on first injection.
+ *
+ * The processor is registered as a service, and so runs whenever this
+ * library is on the compile class path and annotation processors are not
+ * disabled (e.g. with <code>-proc:none</code>) or listed explicitly. When only
+ * some classes are compiled (an incremental build), the entries of the other
+ * classes are kept from the existing manifest.
+ */
+@SupportedAnnotationTypes({ "io.xlate.inject.Property", "io.xlate.inject.PropertyResource" })
+public class PropertyManifestProcessor extends AbstractProcessor {
+
+    private final List<PropertyManifest.Entry> entries = new ArrayList<>();
+    private final Set<String> compiledClasses = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeManifest();
+            return false;
+        }
+
+        for (Element element : roundEnv.getRootElements()) {
+            addCompiledClasses(element);
+        }
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(Property.class)) {
+            if (isInjectionPoint(element)) {
+                entries.add(propertyEntry(element, element.getAnnotation(Property.class)));
+            }
+        }
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(PropertyResource.class)) {
+            if (isInjectionPoint(element)) {
+                PropertyManifest.Entry entry = newEntry(element, element.asType());
+                entry.kind = PropertyManifest.Kind.RESOURCE;
+                setResource(entry, annotationMirror(element, PropertyResource.class));
+                entries.add(entry);
+            }
+        }
+
+        return false;
+    }
+
+    void addCompiledClasses(Element element) {
+        if (element.getKind().isClass() || element.getKind().isInterface()) {
+            compiledClasses.add(binaryName((TypeElement) element));
+
+            for (Element enclosed : element.getEnclosedElements()) {
+                addCompiledClasses(enclosed);
+            }
+        }
+    }
+
+    static boolean isInjectionPoint(Element element) {
+        return element.getKind() == ElementKind.FIELD || element.getKind() == ElementKind.PARAMETER;
+    }
+
+    PropertyManifest.Entry propertyEntry(Element element, Property annotation) {
+        final PropertyManifest.Entry entry = newEntry(element, valueType(element.asType()));
+        final String name;
+
+        if (!annotation.name().isEmpty()) {
+            name = annotation.name();
+        } else {
+            name = entry.member;
+        }
+
+        entry.name = name;
+        entry.systemProperty = annotation.systemProperty().isEmpty() ? entry.beanClass + '.' + name : annotation.systemProperty();
+        entry.defaultValue = annotation.defaultValue();
+        entry.pattern = annotation.pattern();
+        entry.resolveEnvironment = annotation.resolveEnvironment();
+        final AnnotationValue resource = explicitValue(annotationMirror(element, Property.class), "resource");
+        setResource(entry, resource != null ? (AnnotationMirror) resource.getValue() : null);
+        return entry;
+    }
+
+    /*
+     * The member name matches the default property name used at runtime:
+     * the field name, or the method name (the class name for constructors)
+     * followed by the parameter position.
+     */
+    PropertyManifest.Entry newEntry(Element element, TypeMirror type) {
+        final PropertyManifest.Entry entry = new PropertyManifest.Entry();
+
+        if (element.getKind() == ElementKind.PARAMETER) {
+            final ExecutableElement executable = (ExecutableElement) element.getEnclosingElement();
+            final TypeElement beanType = (TypeElement) executable.getEnclosingElement();
+            final String methodName;
+
+            entry.beanClass = binaryName(beanType);
+
+            if (executable.getKind() == ElementKind.CONSTRUCTOR) {
+                methodName = entry.beanClass;
+            } else {
+                methodName = executable.getSimpleName().toString();
+            }
+
+            entry.member = methodName + ".arg" + executable.getParameters().indexOf(element);
+        } else {
+            entry.beanClass = binaryName((TypeElement) element.getEnclosingElement());
+            entry.member = element.getSimpleName().toString();
+        }
+
+        entry.type = typeName(type);
+        return entry;
+    }
+
+    /*
+     * Resource attributes are read from the annotation mirror, with omitted
+     * attributes taken from the PropertyResource class. The defaults are not
+     * read from the compiler's model: the default of Property#resource, and
+     * enum defaults in general, may not yet be resolved when read from a
+     * class file, and getAnnotation then fails.
+     */
+    static void setResource(PropertyManifest.Entry entry, AnnotationMirror resource) {
+        entry.location = (String) resourceValue(resource, "value");
+        entry.format = (PropertyResourceFormat) resourceValue(resource, "format");
+        entry.resolveLocationEnvironment = (Boolean) resourceValue(resource, "resolveEnvironment");
+        entry.allowMissingResource = (Boolean) resourceValue(resource, "allowMissingResource");
+        entry.refreshInterval = (Long) resourceValue(resource, "refreshInterval");
+        entry.watch = (Boolean) resourceValue(resource, "watch");
+        entry.mapped = (Boolean) resourceValue(resource, "mapped");
+        entry.interpolate = (Boolean) resourceValue(resource, "interpolate");
+    }
+
+    static Object resourceValue(AnnotationMirror resource, String name) {
+        final AnnotationValue value = resource != null ? explicitValue(resource, name) : null;
+
+        if (value != null) {
+            final Object result = value.getValue();
+
+            if (result instanceof VariableElement) {
+                return PropertyResourceFormat.valueOf(((VariableElement) result).getSimpleName().toString());
+            }
+
+            return result;
+        }
+
+        try {
+            return PropertyResource.class.getMethod(name).getDefaultValue();
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(name + " not declared by " + PropertyResource.class.getName(), e);
+        }
+    }
+
+    static AnnotationMirror annotationMirror(Element element, Class<?> annotationType) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            final TypeElement type = (TypeElement) mirror.getAnnotationType().asElement();
+
+            if (type.getQualifiedName().contentEquals(annotationType.getName())) {
+                return mirror;
+            }
+        }
+
+        throw new IllegalArgumentException(annotationType.getName() + " not present on " + element);
+    }
+
+    /*
+     * The value given for an attribute of the annotation, or null when the
+     * attribute was omitted.
+     */
+    static AnnotationValue explicitValue(AnnotationMirror annotation, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : annotation.getElementValues().entrySet()) {
+            if (value.getKey().getSimpleName().contentEquals(name)) {
+                return value.getValue();
+            }
+        }
+
+        return null;
+    }
+
+    /*
+     * The value type of a PropertyValue, otherwise the injected type.
+     */
+    TypeMirror valueType(TypeMirror type) {
+        if (type.getKind() == TypeKind.DECLARED) {
+            final DeclaredType declared = (DeclaredType) type;
+            final TypeElement element = (TypeElement) declared.asElement();
+
+            if (element.getQualifiedName().contentEquals(PropertyValue.class.getName())
+                    && declared.getTypeArguments().size() == 1) {
+                return declared.getTypeArguments().get(0);
+            }
+        }
+        return type;
+    }
+
+    String typeName(TypeMirror type) {
+        final TypeMirror erasure = processingEnv.getTypeUtils().erasure(type);
+
+        if (erasure.getKind() == TypeKind.DECLARED) {
+            return binaryName((TypeElement) ((DeclaredType) erasure).asElement());
+        }
+
+        return erasure.toString();
+    }
+
+    String binaryName(TypeElement type) {
+        return processingEnv.getElementUtils().getBinaryName(type).toString();
+    }
+
+    void writeManifest() {
+        final List<PropertyManifest.Entry> existing = readManifest();
+
+        if (entries.isEmpty() && existing.isEmpty()) {
+            return;
+        }
+
+        final List<PropertyManifest.Entry> merged = new ArrayList<>();
+
+        for (PropertyManifest.Entry entry : existing) {
+            if (!compiledClasses.contains(entry.beanClass) && exists(entry.beanClass)) {
+                merged.add(entry);
+            }
+        }
+
+        merged.addAll(entries);
+
+        try {
+            final FileObject manifest = processingEnv.getFiler()
+                                                     .createResource(StandardLocation.CLASS_OUTPUT, "", PropertyManifest.LOCATION);
+
+            try (OutputStream output = manifest.openOutputStream()) {
+                PropertyManifest.write(merged, output);
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write " + PropertyManifest.LOCATION + ": " + e);
+        }
+    }
+
+    /*
+     * The manifest written by an earlier compilation to the same output, or
+     * an empty list when there is none.
+     */
+    List<PropertyManifest.Entry> readManifest() {
+        try {
+            final FileObject manifest = processingEnv.getFiler()
+                                                     .getResource(StandardLocation.CLASS_OUTPUT, "", PropertyManifest.LOCATION);
+
+            try (InputStream input = manifest.openInputStream()) {
+                return PropertyManifest.read(input);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    /*
+     * Whether a class not compiled in this run is still available, i.e. its
+     * source has not been deleted since the manifest was written.
+     */
+    boolean exists(String binaryName) {
+        return processingEnv.getElementUtils().getTypeElement(binaryName.replace('$', '.')) != null;
+    }
+}
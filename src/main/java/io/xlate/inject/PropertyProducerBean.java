@@ -17,17 +17,24 @@
 package io.xlate.inject;
 
 import java.io.IOException;
-import java.io.StringReader;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.net.URL;
-import java.text.DateFormat;
-import java.text.DecimalFormat;
-import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.Period;
+import java.time.ZonedDateTime;
 import java.util.Date;
-import java.util.function.Function;
-import java.util.logging.Level;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 import javax.enterprise.context.ApplicationScoped;
@@ -35,199 +42,349 @@ import javax.enterprise.context.Dependent;
 import javax.enterprise.inject.InjectionException;
 import javax.enterprise.inject.Produces;
 import javax.enterprise.inject.spi.InjectionPoint;
-import javax.json.Json;
+import javax.inject.Inject;
 import javax.json.JsonArray;
 import javax.json.JsonObject;
-import javax.json.JsonReader;
-import javax.json.JsonStructure;
 
 @ApplicationScoped
 public class PropertyProducerBean {
 
+    @SuppressWarnings("unused")
     private static final Logger logger = Logger.getLogger(PropertyProducerBean.class.getName());
 
-    private final PropertyFactory factory = new PropertyFactory();
+    private static final Map<Type, BiFunction<PropertyProducerBean, InjectionPoint, Object>> producers = new HashMap<>();
+
+    static {
+        producers.put(String.class, PropertyProducerBean::produceProperty);
+        producers.put(Boolean.class, PropertyProducerBean::produceBooleanProperty);
+        producers.put(Boolean.TYPE, PropertyProducerBean::produceBooleanProperty);
+        producers.put(Integer.class, PropertyProducerBean::produceIntegerProperty);
+        producers.put(Integer.TYPE, PropertyProducerBean::produceIntegerProperty);
+        producers.put(Long.class, PropertyProducerBean::produceLongProperty);
+        producers.put(Long.TYPE, PropertyProducerBean::produceLongProperty);
+        producers.put(Float.class, PropertyProducerBean::produceFloatProperty);
+        producers.put(Float.TYPE, PropertyProducerBean::produceFloatProperty);
+        producers.put(Double.class, PropertyProducerBean::produceDoubleProperty);
+        producers.put(Double.TYPE, PropertyProducerBean::produceDoubleProperty);
+        producers.put(BigInteger.class, PropertyProducerBean::produceBigIntegerProperty);
+        producers.put(BigDecimal.class, PropertyProducerBean::produceBigDecimalProperty);
+        producers.put(Date.class, PropertyProducerBean::produceDateProperty);
+        producers.put(Instant.class, PropertyProducerBean::produceInstantProperty);
+        producers.put(LocalDate.class, PropertyProducerBean::produceLocalDateProperty);
+        producers.put(LocalDateTime.class, PropertyProducerBean::produceLocalDateTimeProperty);
+        producers.put(OffsetDateTime.class, PropertyProducerBean::produceOffsetDateTimeProperty);
+        producers.put(ZonedDateTime.class, PropertyProducerBean::produceZonedDateTimeProperty);
+        producers.put(Duration.class, PropertyProducerBean::produceDurationProperty);
+        producers.put(Period.class, PropertyProducerBean::producePeriodProperty);
+    }
+
+    private final PropertyFactory factory;
+    private final ConcurrentMap<Object, PropertyValue<?>> values = new ConcurrentHashMap<>();
+
+    public PropertyProducerBean() {
+        this(new PropertyResourceRegistry());
+    }
+
+    @Inject
+    public PropertyProducerBean(PropertyResourceRegistry registry) {
+        this.factory = new PropertyFactory(registry);
+    }
 
     @Produces
     @Dependent
     @Property
     public String produceProperty(InjectionPoint injectionPoint) {
-        try {
-            return getProperty(injectionPoint);
-        } catch (Exception e) {
-            throw new InjectionException(e);
-        }
+        return produceConverted(injectionPoint, String.class, () -> {
+            try {
+                return getProperty(injectionPoint);
+            } catch (Exception e) {
+                throw new InjectionException(e);
+            }
+        });
     }
 
     @Produces
     @Dependent
     @Property
     public Boolean produceBooleanProperty(InjectionPoint injectionPoint) {
-        return produceWrapped(injectionPoint, Boolean.TYPE, Boolean::valueOf, Boolean.FALSE);
+        return produceConverted(injectionPoint, Boolean.class, () -> produceWrapped(injectionPoint, Boolean.TYPE, Boolean.class, Boolean.FALSE));
     }
 
     @Produces
     @Dependent
     @Property
     public Integer produceIntegerProperty(InjectionPoint injectionPoint) {
-        return produceWrapped(injectionPoint, Integer.TYPE, Integer::valueOf, Integer.valueOf(0));
+        return produceConverted(injectionPoint, Integer.class, () -> produceWrapped(injectionPoint, Integer.TYPE, Integer.class, Integer.valueOf(0)));
     }
 
     @Produces
     @Dependent
     @Property
     public Long produceLongProperty(InjectionPoint injectionPoint) {
-        return produceWrapped(injectionPoint, Long.TYPE, Long::valueOf, Long.valueOf(0L));
+        return produceConverted(injectionPoint, Long.class, () -> produceWrapped(injectionPoint, Long.TYPE, Long.class, Long.valueOf(0L)));
     }
 
     @Produces
     @Dependent
     @Property
     public Float produceFloatProperty(InjectionPoint injectionPoint) {
-        return produceWrapped(injectionPoint, Float.TYPE, Float::valueOf, Float.valueOf(0f));
+        return produceConverted(injectionPoint, Float.class, () -> produceWrapped(injectionPoint, Float.TYPE, Float.class, Float.valueOf(0f)));
     }
 
     @Produces
     @Dependent
     @Property
     public Double produceDoubleProperty(InjectionPoint injectionPoint) {
-        return produceWrapped(injectionPoint, Double.TYPE, Double::valueOf, Double.valueOf(0d));
+        return produceConverted(injectionPoint, Double.class, () -> produceWrapped(injectionPoint, Double.TYPE, Double.class, Double.valueOf(0d)));
     }
 
     @Produces
     @Dependent
     @Property
     public BigInteger produceBigIntegerProperty(InjectionPoint injectionPoint) {
-        try {
-            final BigDecimal value = produceBigDecimalProperty(injectionPoint);
-
-            if (value != null) {
-                return value.toBigInteger();
-            }
-        } catch (Exception e) {
-            throw new InjectionException(e);
-        }
-
-        return null;
+        return produceConverted(injectionPoint, BigInteger.class, () -> produceTyped(injectionPoint, BigInteger.class));
     }
 
     @Produces
     @Dependent
     @Property
     public BigDecimal produceBigDecimalProperty(InjectionPoint injectionPoint) {
-        try {
-            final String value = getProperty(injectionPoint);
-            final BigDecimal number;
-
-            if (value != null) {
-                final Property annotation = injectionPoint.getAnnotated().getAnnotation(Property.class);
-                final String pattern = annotation.pattern();
-
-                if (pattern.isEmpty()) {
-                    number = new BigDecimal(value);
-                } else {
-                    if (logger.isLoggable(Level.FINER)) {
-                        logger.log(Level.FINER, "Parsing number with using pattern [" + pattern + ']');
-                    }
-
-                    DecimalFormat format = new DecimalFormat(pattern);
-                    format.setParseBigDecimal(true);
-                    number = (BigDecimal) format.parse(value);
-                }
-            } else {
-                number = null;
-            }
-            return number;
-        } catch (Exception e) {
-            throw new InjectionException(e);
-        }
+        return produceConverted(injectionPoint, BigDecimal.class, () -> produceTyped(injectionPoint, BigDecimal.class));
     }
 
     @Produces
     @Dependent
     @Property
     public Date produceDateProperty(InjectionPoint injectionPoint) {
-        try {
-            final String value = getProperty(injectionPoint);
-            final Date date;
-
-            if (value != null) {
-                final Property annotation = injectionPoint.getAnnotated().getAnnotation(Property.class);
-                final String pattern = annotation.pattern();
-                DateFormat format = new SimpleDateFormat(pattern.isEmpty() ? "yyyy-MM-dd'T'HH:mm:ss.SSSZ" : pattern);
-                date = format.parse(value);
-            } else {
-                date = null;
-            }
-            return date;
-        } catch (Exception e) {
-            throw new InjectionException(e);
-        }
+        return produceConverted(injectionPoint, Date.class, () -> produceTyped(injectionPoint, Date.class));
+    }
+
+    @Produces
+    @Dependent
+    @Property
+    public Instant produceInstantProperty(InjectionPoint injectionPoint) {
+        return produceConverted(injectionPoint, Instant.class, () -> produceTyped(injectionPoint, Instant.class));
+    }
+
+    @Produces
+    @Dependent
+    @Property
+    public LocalDate produceLocalDateProperty(InjectionPoint injectionPoint) {
+        return produceConverted(injectionPoint, LocalDate.class, () -> produceTyped(injectionPoint, LocalDate.class));
+    }
+
+    @Produces
+    @Dependent
+    @Property
+    public LocalDateTime produceLocalDateTimeProperty(InjectionPoint injectionPoint) {
+        return produceConverted(injectionPoint, LocalDateTime.class, () -> produceTyped(injectionPoint, LocalDateTime.class));
+    }
+
+    @Produces
+    @Dependent
+    @Property
+    public OffsetDateTime produceOffsetDateTimeProperty(InjectionPoint injectionPoint) {
+        return produceConverted(injectionPoint, OffsetDateTime.class, () -> produceTyped(injectionPoint, OffsetDateTime.class));
+    }
+
+    @Produces
+    @Dependent
+    @Property
+    public ZonedDateTime produceZonedDateTimeProperty(InjectionPoint injectionPoint) {
+        return produceConverted(injectionPoint, ZonedDateTime.class, () -> produceTyped(injectionPoint, ZonedDateTime.class));
+    }
+
+    @Produces
+    @Dependent
+    @Property
+    public Duration produceDurationProperty(InjectionPoint injectionPoint) {
+        return produceConverted(injectionPoint, Duration.class, () -> produceTyped(injectionPoint, Duration.class));
+    }
+
+    @Produces
+    @Dependent
+    @Property
+    public Period producePeriodProperty(InjectionPoint injectionPoint) {
+        return produceConverted(injectionPoint, Period.class, () -> produceTyped(injectionPoint, Period.class));
     }
 
     @Produces
     @Dependent
     @Property
     public JsonArray produceJsonArrayProperty(InjectionPoint injectionPoint) {
-        return produceJson(injectionPoint, JsonReader::readArray);
+        return produceConverted(injectionPoint, JsonArray.class, () -> produceTyped(injectionPoint, JsonArray.class));
     }
 
     @Produces
     @Dependent
     @Property
     public JsonObject produceJsonObjectProperty(InjectionPoint injectionPoint) {
-        return produceJson(injectionPoint, JsonReader::readObject);
+        return produceConverted(injectionPoint, JsonObject.class, () -> produceTyped(injectionPoint, JsonObject.class));
     }
 
-    private <T> T produceWrapped(InjectionPoint injectionPoint, Class<T> type, Function<String, T> parser, T defaultValue) {
-        try {
-            final String value = getProperty(injectionPoint);
+    @Produces
+    @Dependent
+    @Property
+    @SuppressWarnings("unchecked")
+    public <T> PropertyValue<T> producePropertyValue(InjectionPoint injectionPoint) {
+        final Class<T> valueType = getValueType(injectionPoint);
 
-            if (value != null) {
-                return parser.apply(value);
-            }
+        final Object key = PropertyFactory.getInjectionKey(injectionPoint);
+        final PropertyValue<?> existing = values.get(key);
+
+        if (existing != null) {
+            return (PropertyValue<T>) existing;
+        }
 
-            final Type injectionType = injectionPoint.getType();
-            return injectionType.equals(type) ? defaultValue : null;
+        /*
+         * The handle is loaded outside of the map so that reading the resource
+         * does not block other injection points, and is registered for updates
+         * only once it has loaded and been published, so a failed injection
+         * leaves no listener behind. It is loaded again after registration to
+         * pick up any change made in between (normally a cached conversion).
+         */
+        final PropertyInjectionPlan plan;
+        final PropertyValueHandle<T> handle;
+
+        try {
+            plan = factory.getPlan(injectionPoint);
+            handle = new PropertyValueHandle<>(() -> getConverted(plan, valueType));
+            handle.load();
         } catch (Exception e) {
             throw new InjectionException(e);
         }
+
+        final PropertyValue<?> published = values.putIfAbsent(key, handle);
+
+        if (published != null) {
+            return (PropertyValue<T>) published;
+        }
+
+        factory.addListener(plan.resourceUrl, handle::update);
+        factory.registry.addSystemPropertyListener(plan.systemProperty, handle::update);
+        handle.update();
+
+        return handle;
     }
 
-    private <T extends JsonStructure> T produceJson(InjectionPoint injectionPoint, Function<JsonReader, T> jsonSupplier) {
-        try {
-            final String value = getProperty(injectionPoint);
-            if (value != null) {
-                try (JsonReader reader = Json.createReader(new StringReader(value))) {
-                    return jsonSupplier.apply(reader);
-                }
+    @SuppressWarnings("unchecked")
+    <T> Class<T> getValueType(InjectionPoint injectionPoint) {
+        final Type injectionType = injectionPoint.getType();
+
+        if (injectionType instanceof ParameterizedType) {
+            final Type valueType = ((ParameterizedType) injectionType).getActualTypeArguments()[0];
+
+            if (valueType instanceof Class && PropertyConverters.isSupported((Class<?>) valueType)) {
+                return (Class<T>) valueType;
             }
-            return null;
+        }
+
+        throw new InjectionException("Unsupported property value type: " + injectionType);
+    }
+
+    /*
+     * Returns the value converted during deployment, if any, otherwise the
+     * value given by the producer. Dates are mutable and copied.
+     */
+    <T> T produceConverted(InjectionPoint injectionPoint, Class<T> type, Supplier<T> producer) {
+        final PropertyResourceRegistry.ConvertedValue converted = factory.registry.getConvertedValue(PropertyFactory.getInjectionKey(injectionPoint));
+
+        if (converted != null && (converted.value == null || type.isInstance(converted.value))) {
+            final Object value = converted.value;
+            return type.cast(value instanceof Date ? ((Date) value).clone() : value);
+        }
+
+        return producer.get();
+    }
+
+    /*
+     * Produces and stores the value for the injection point using the producer
+     * matching the injection type. Returns false when the type is not
+     * produced as a single converted value, e.g. PropertyValue.
+     */
+    boolean convert(InjectionPoint injectionPoint) throws IOException {
+        final Type type = injectionPoint.getType();
+        BiFunction<PropertyProducerBean, InjectionPoint, Object> producer = producers.get(type);
+
+        if (producer == null && type instanceof Class && PropertyConverters.isJsonType((Class<?>) type)) {
+            if ("javax.json.JsonArray".equals(((Class<?>) type).getName())) {
+                producer = PropertyProducerBean::produceJsonArrayProperty;
+            } else {
+                producer = PropertyProducerBean::produceJsonObjectProperty;
+            }
+        }
+
+        if (producer == null) {
+            return false;
+        }
+
+        final Object value = producer.apply(this, injectionPoint);
+        final PropertyInjectionPlan plan = factory.getPlan(injectionPoint);
+        factory.registry.putConvertedValue(PropertyFactory.getInjectionKey(injectionPoint), plan.resourceId(), plan.systemProperty, value);
+        return true;
+    }
+
+    private <T> T produceWrapped(InjectionPoint injectionPoint, Class<T> primitiveType, Class<T> type, T defaultValue) {
+        final T value = produceTyped(injectionPoint, type);
+
+        if (value != null) {
+            return value;
+        }
+
+        final Type injectionType = injectionPoint.getType();
+        return injectionType.equals(primitiveType) ? defaultValue : null;
+    }
+
+    private <T> T produceTyped(InjectionPoint injectionPoint, Class<T> type) {
+        try {
+            return getConverted(factory.getPlan(injectionPoint), type);
         } catch (Exception e) {
             throw new InjectionException(e);
         }
     }
 
+    /*
+     * Converts the property for the plan to the given type. Conversions of
+     * values read from a resource are cached by the resource's snapshot.
+     */
+    <T> T getConverted(PropertyInjectionPlan plan, Class<T> type) throws Exception {
+        final PropertyConverters.Converter<T> converter = PropertyConverters.converter(type);
+        final String systemProperty = factory.getSystemProperty(plan.systemProperty);
+
+        if (systemProperty != null) {
+            return converter.convert(systemProperty, plan.pattern);
+        }
+
+        final PropertySnapshot snapshot = factory.getSnapshot(plan.resourceUrl, plan.resource);
+        String value = factory.getProperty(snapshot, plan.propertyName, plan.defaultValue);
+
+        if (value == null) {
+            return null;
+        }
+
+        if (plan.resolveEnvironment) {
+            value = factory.replaceEnvironmentReferences(value);
+        }
+
+        return snapshot.convert(plan.propertyName, type, plan.pattern, value, converter);
+    }
+
     String getProperty(InjectionPoint point) throws IOException {
-        final Property annotation = point.getAnnotated().getAnnotation(Property.class);
-        final Class<?> beanType = point.getMember().getDeclaringClass();
-        final String propertyName = factory.getPropertyName(point, annotation.name());
-        final String defaultValue = annotation.defaultValue();
+        return getProperty(factory.getPlan(point));
+    }
 
-        final String systemProperty = factory.getSystemProperty(beanType,
-                                                                annotation.systemProperty(),
-                                                                propertyName);
+    String getProperty(PropertyInjectionPlan plan) throws IOException {
+        final String systemProperty = factory.getSystemProperty(plan.systemProperty);
 
         if (systemProperty != null) {
             return systemProperty;
         }
 
-        final PropertyResource resource = annotation.resource();
-        final String value;
-        final URL resourceUrl = factory.getResourceUrl(resource, beanType);
-        value = factory.getProperty(resourceUrl, resource.format(), resource.allowMissingResource(), propertyName, defaultValue);
+        final String value = factory.getProperty(factory.getSnapshot(plan.resourceUrl, plan.resource),
+                                                 plan.propertyName,
+                                                 plan.defaultValue);
 
-        if (value != null && annotation.resolveEnvironment()) {
+        if (value != null && plan.resolveEnvironment) {
             return factory.replaceEnvironmentReferences(value);
         }
 
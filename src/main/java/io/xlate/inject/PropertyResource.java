@@ -44,7 +44,7 @@ public @interface PropertyResource {
 
     /**
      * The format of the resource named by {@link #value}. Supported formats are
-     * XML and Properties (key/value pairs).
+     * XML, Properties (key/value pairs), JSON and the precompiled binary format.
      *
      * @return the <code>PropertyResourceFormat</code> of the Properties
      *         resource
@@ -86,4 +86,100 @@ public @interface PropertyResource {
      */
     @Nonbinding
     public boolean allowMissingResource() default false;
+
+    /**
+     * Interval, in seconds, at which a resource retrieved using the http or
+     * https protocol will be checked for changes. Checks are made in the
+     * background using conditional requests (<code>If-None-Match</code> and
+     * <code>If-Modified-Since</code>), and properties injected after a change
+     * has been retrieved will use the new values. When the same resource is
+     * referenced by multiple injection points, the interval of the first
+     * injection point to load the resource is used.
+     *
+     * @return the refresh interval in seconds, or 0 (default) to load the
+     *         resource only once
+     */
+    @Nonbinding
+    public long refreshInterval() default 0;
+
+    /**
+     * Value to indicate whether a resource loaded from a <code>file:</code>
+     * URL should be watched for changes. When enabled, the directory
+     * containing the file is registered with a
+     * {@link java.nio.file.WatchService} and the file is parsed again each
+     * time it is modified. Properties injected after a change will use the
+     * new values.
+     *
+     * @return true to reload the file when it changes, false (default) to load
+     *         the file only once
+     */
+    @Nonbinding
+    public boolean watch() default false;
+
+    /**
+     * Value to indicate whether a resource in properties format loaded from a
+     * <code>file:</code> URL should be mapped into memory rather than read
+     * into the heap. Only an index of the keys' locations in the file is held
+     * on the heap, and values are decoded when they are requested. This is
+     * intended for very large resources of which only a small portion is used
+     * by an application. A mapped file must not be modified in place; it
+     * should instead be replaced with a new file.
+     *
+     * The setting is ignored for other formats and protocols. When the same
+     * resource is referenced by multiple injection points, the setting of the
+     * first injection point to load the resource is used.
+     *
+     * @return true to map the file into memory, false (default) to read the
+     *         file into the heap
+     */
+    @Nonbinding
+    public boolean mapped() default false;
+
+    /**
+     * Value to indicate whether references in the values of the resource
+     * should be expanded. A value may refer to another property of the same
+     * resource with <code>${key}</code>, to a system property with
+     * <code>${sys.name}</code>, or to an environment variable with
+     * <code>${env.NAME}</code>. A default may follow a colon and may itself
+     * contain references, e.g. <code>${primary.host:${backup.host:localhost}}</code>.
+     * A reference that can not be resolved and has no default is replaced with
+     * an empty string.
+     *
+     * For example, given the following properties file content:
+     *
+     * <pre>
+     * host=${sys.service.host:localhost}
+     * url=http://${host}:${port:8080}/api
+     * </pre>
+     *
+     * the value of <code>url</code> will be "http://localhost:8080/api" when
+     * the system property <code>service.host</code> is not set.
+     *
+     * References are expanded once each time the resource is loaded, so
+     * injection of an expanded value costs the same as any other value.
+     * System properties and environment variables are read at that time. A
+     * resource containing a circular reference can not be injected.
+     *
+     * @return true to expand references in values, false (default) to inject
+     *         values as they appear in the resource
+     */
+    @Nonbinding
+    public boolean interpolate() default false;
+
+    /**
+     * Determines whether the injected {@link Properties} may be modified and
+     * whether modifications are visible to other injection points using the
+     * same resource. By default, the instance cached for the resource is
+     * injected directly. Use {@link PropertyResourceAccess#READ_ONLY} to
+     * prevent modification without copying the properties for each injection,
+     * or {@link PropertyResourceAccess#COPY_ON_WRITE} to receive an instance
+     * that is only copied if it is modified.
+     *
+     * Only applicable to the injection of {@link Properties}.
+     *
+     * @return the <code>PropertyResourceAccess</code> of the injected
+     *         Properties
+     */
+    @Nonbinding
+    public PropertyResourceAccess access() default PropertyResourceAccess.SHARED;
 }
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+/**
+ * Determines how the {@link java.util.Properties} injected for a
+ * {@link PropertyResource} relate to the instance cached for the resource.
+ */
+public enum PropertyResourceAccess {
+
+    /**
+     * The cached instance is injected directly. Changes made by one consumer
+     * are visible to every other consumer of the same resource.
+     */
+    SHARED,
+
+    /**
+     * A read-only view of the cached properties is injected. Any attempt to
+     * modify it throws an {@link UnsupportedOperationException}. The view is
+     * shared by all injection points, so no copy is made per injection.
+     */
+    READ_ONLY,
+
+    /**
+     * A private instance is injected that reads from the cached properties
+     * until it is first modified, at which time the properties are copied.
+     * Modifications are never visible to other consumers.
+     */
+    COPY_ON_WRITE
+
+}
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Converts properties, XML and JSON resources to the precompiled
+ * {@link PropertyResourceFormat#BINARY BINARY} format, typically as part of a
+ * build. Arguments are the input file, the output file and optionally the
+ * format of the input. When omitted, the format is determined by the file
+ * extension (<code>.xml</code>, <code>.json</code>, otherwise properties).
+ *
+ * When the input is a directory, each properties, XML and JSON file in the
+ * directory tree is converted to a file with the same relative path in the
+ * output directory and the extension <code>.bin</code>.
+ *
+ * For example, using the exec-maven-plugin:
+ *
+ * <pre>
+ * &lt;execution&gt;
+ *   &lt;phase&gt;process-resources&lt;/phase&gt;
+ *   &lt;goals&gt;&lt;goal&gt;java&lt;/goal&gt;&lt;/goals&gt;
+ *   &lt;configuration&gt;
+ *     &lt;mainClass&gt;io.xlate.inject.PropertyResourceConverter&lt;/mainClass&gt;
+ *     &lt;arguments&gt;
+ *       &lt;argument&gt;${project.basedir}/src/main/properties&lt;/argument&gt;
+ *       &lt;argument&gt;${project.build.outputDirectory}&lt;/argument&gt;
+ *     &lt;/arguments&gt;
+ *   &lt;/configuration&gt;
+ * &lt;/execution&gt;
+ * </pre>
+ *
+ * Properties files are read using the character set given by the system
+ * property {@value PropertyResourceRegistry#PROPERTIES_CHARSET_PROPERTY}
+ * (default ISO-8859-1).
+ */
+public final class PropertyResourceConverter {
+
+    static final String BINARY_EXTENSION = ".bin";
+
+    private final PropertyResourceRegistry registry = new PropertyResourceRegistry();
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            throw new IllegalArgumentException("Usage: PropertyResourceConverter <input> <output> [PROPERTIES|XML|JSON]");
+        }
+
+        final Path input = Paths.get(args[0]);
+        final Path output = Paths.get(args[1]);
+        final PropertyResourceFormat format;
+
+        if (args.length > 2) {
+            format = PropertyResourceFormat.valueOf(args[2].toUpperCase(Locale.ROOT));
+        } else {
+            format = null;
+        }
+
+        final PropertyResourceConverter converter = new PropertyResourceConverter();
+
+        if (Files.isDirectory(input)) {
+            converter.convertDirectory(input, output, format);
+        } else {
+            converter.convert(input, output, format != null ? format : formatOf(input));
+        }
+    }
+
+    void convertDirectory(Path input, Path output, PropertyResourceFormat format) throws IOException {
+        final List<Path> files;
+
+        try (Stream<Path> tree = Files.walk(input)) {
+            files = tree.filter(Files::isRegularFile)
+                        .filter(file -> format != null || isConvertible(file))
+                        .collect(Collectors.toList());
+        }
+
+        for (Path file : files) {
+            final String name = file.getFileName().toString();
+            final int extension = name.lastIndexOf('.');
+            final String binaryName = (extension > 0 ? name.substring(0, extension) : name) + BINARY_EXTENSION;
+            final Path target = output.resolve(input.relativize(file).resolveSibling(binaryName).toString());
+
+            convert(file, target, format != null ? format : formatOf(file));
+        }
+    }
+
+    void convert(Path input, Path output, PropertyResourceFormat format) throws IOException {
+        if (format == PropertyResourceFormat.BINARY) {
+            throw new IllegalArgumentException("Resource is already in binary format: " + input);
+        }
+
+        final PropertySnapshot snapshot;
+
+        try (InputStream resourceStream = Files.newInputStream(input)) {
+            snapshot = registry.loadSnapshot(resourceStream, format);
+        }
+
+        final Path parent = output.toAbsolutePath().getParent();
+
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        try (OutputStream outputStream = Files.newOutputStream(output)) {
+            BinaryPropertySnapshot.write(snapshot, outputStream);
+        }
+    }
+
+    static boolean isConvertible(Path file) {
+        final String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".properties") || name.endsWith(".xml") || name.endsWith(".json");
+    }
+
+    static PropertyResourceFormat formatOf(Path file) {
+        final String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+
+        if (name.endsWith(".xml")) {
+            return PropertyResourceFormat.XML;
+        }
+        if (name.endsWith(".json")) {
+            return PropertyResourceFormat.JSON;
+        }
+        return PropertyResourceFormat.PROPERTIES;
+    }
+}
@@ -18,6 +18,19 @@ package io.xlate.inject;
 
 public enum PropertyResourceFormat {
 
-	PROPERTIES, XML
+	PROPERTIES, XML,
+
+	/**
+	 * JSON document with nested objects and arrays flattened into keys such as
+	 * <code>db.hosts[0]</code>. Requires the JSON Processing API.
+	 */
+	JSON,
+
+	/**
+	 * Precompiled binary resource with a prebuilt hash index, produced by
+	 * {@link PropertyResourceConverter}. Binary files are memory-mapped and
+	 * read without parsing.
+	 */
+	BINARY
 
 }
@@ -16,7 +16,6 @@
  ******************************************************************************/
 package io.xlate.inject;
 
-import java.net.URL;
 import java.util.Properties;
 import java.util.logging.Logger;
 
@@ -24,8 +23,8 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.context.Dependent;
 import javax.enterprise.inject.InjectionException;
 import javax.enterprise.inject.Produces;
-import javax.enterprise.inject.spi.Annotated;
 import javax.enterprise.inject.spi.InjectionPoint;
+import javax.inject.Inject;
 
 @ApplicationScoped
 public class PropertyResourceProducerBean {
@@ -33,26 +32,28 @@ public class PropertyResourceProducerBean {
     @SuppressWarnings("unused")
     private static final Logger logger = Logger.getLogger(PropertyResourceProducerBean.class.getName());
 
-    private final PropertyFactory factory = new PropertyFactory();
+    private final PropertyFactory factory;
+
+    public PropertyResourceProducerBean() {
+        this(new PropertyResourceRegistry());
+    }
+
+    @Inject
+    public PropertyResourceProducerBean(PropertyResourceRegistry registry) {
+        this.factory = new PropertyFactory(registry);
+    }
 
     @Produces
     @Dependent
     @PropertyResource
     public Properties produceProperties(InjectionPoint point) {
-        final Annotated annotated = point.getAnnotated();
-
         if (point.getType() != Properties.class) {
             throw new InjectionException(Properties.class + " can not be injected to type " + point.getType());
         }
 
-        final Class<?> beanType = point.getMember().getDeclaringClass();
-        final PropertyResource annotation = annotated.getAnnotation(PropertyResource.class);
-        final PropertyResourceFormat format = annotation.format();
-        URL resourceUrl = null;
-
         try {
-            resourceUrl = factory.getResourceUrl(annotation, beanType);
-            return factory.getProperties(resourceUrl, format, annotation.allowMissingResource());
+            final PropertyInjectionPlan plan = factory.getResourcePlan(point);
+            return factory.getProperties(plan.resourceUrl, plan.resource);
         } catch (Exception e) {
             throw new InjectionException(e);
         }
@@ -0,0 +1,974 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URISyntaxException;
+import java.net.URLConnection;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.enterprise.inject.Vetoed;
+
+/**
+ * Application-wide registry of the property resources loaded for injection.
+ * A single instance is managed by the {@link PropertyInjectionExtension} and
+ * shared by all of the producer beans so that each resource is read and
+ * parsed only once per deployment.
+ *
+ * The registry may be bounded by the number of resources held and by their
+ * total weight (the number of characters in all keys and values) using the
+ * system properties {@value #MAXIMUM_SIZE_PROPERTY} and
+ * {@value #MAXIMUM_WEIGHT_PROPERTY}. When either limit is exceeded, the least
+ * recently used resources are evicted and will be loaded again on demand.
+ *
+ * Resources loaded over http or https with a refresh interval are checked for
+ * changes in the background using conditional requests. Callers continue to
+ * receive the current properties while a refresh is in progress. Connections
+ * to a resource time out after {@value #CONNECT_TIMEOUT_PROPERTY}
+ * milliseconds (default 10 seconds) to connect and
+ * {@value #READ_TIMEOUT_PROPERTY} milliseconds (default 30 seconds) waiting
+ * for data. Background loads run on a separate pool, so a slow resource
+ * delays only its own refresh.
+ *
+ * Resources loaded from a file may be watched for changes, in which case the
+ * file is parsed again when it is modified and the new properties replace the
+ * previous properties in the registry.
+ *
+ * A resource that could not be loaded is remembered for a period of time
+ * before another attempt is made to load it, so that repeated injections do
+ * not repeatedly request a missing or failing resource. The period starts at
+ * {@value #FAILURE_TTL_PROPERTY} milliseconds (default 10 seconds) and doubles
+ * with each consecutive failure up to {@value #MAXIMUM_FAILURE_TTL_PROPERTY}
+ * milliseconds (default 5 minutes).
+ * When the period ends, the resource is loaded again on its next request or,
+ * for the registry managed by the {@link PropertyInjectionExtension}, in the
+ * background, so that a resource which becomes available later is picked up
+ * by {@link PropertyValue} injection points and converted values without a
+ * restart. A missing file that is to be watched is loaded as soon as it is
+ * created.
+ *
+ * Keys and values that occur more than once, within a resource or across
+ * resources, may be stored as a single shared instance by setting the system
+ * property {@value #DEDUPLICATE_STRINGS_PROPERTY} to <code>true</code>.
+ *
+ * Resources in properties format are read using the ISO-8859-1 character
+ * set, consistent with {@link Properties#load(InputStream)}. A different
+ * character set (e.g. UTF-8) may be given using the system property
+ * {@value #PROPERTIES_CHARSET_PROPERTY}.
+ *
+ * System properties that override injected values are read from a snapshot
+ * of the properties referenced by injection points rather than from
+ * {@link System#getProperties()} on each injection. A system property is read
+ * when it is first referenced and again when
+ * {@link #refreshSystemProperties()} is called or, when
+ * {@value #SYSTEM_PROPERTY_REFRESH_INTERVAL_PROPERTY} is set, every given
+ * number of milliseconds for the registry managed by the
+ * {@link PropertyInjectionExtension}.
+ */
+@Vetoed
+public class PropertyResourceRegistry {
+
+    public static final String MAXIMUM_SIZE_PROPERTY = "io.xlate.inject.registry.maximumSize";
+    public static final String MAXIMUM_WEIGHT_PROPERTY = "io.xlate.inject.registry.maximumWeight";
+    public static final String FAILURE_TTL_PROPERTY = "io.xlate.inject.registry.failureTtl";
+    public static final String MAXIMUM_FAILURE_TTL_PROPERTY = "io.xlate.inject.registry.maximumFailureTtl";
+    public static final String DEDUPLICATE_STRINGS_PROPERTY = "io.xlate.inject.registry.deduplicateStrings";
+    public static final String PROPERTIES_CHARSET_PROPERTY = "io.xlate.inject.registry.propertiesCharset";
+    public static final String CONNECT_TIMEOUT_PROPERTY = "io.xlate.inject.registry.connectTimeout";
+    public static final String READ_TIMEOUT_PROPERTY = "io.xlate.inject.registry.readTimeout";
+    public static final String SYSTEM_PROPERTY_REFRESH_INTERVAL_PROPERTY = "io.xlate.inject.registry.systemPropertyRefreshInterval";
+
+    private static final Logger logger = Logger.getLogger(PropertyResourceRegistry.class.getName());
+
+    final ConcurrentMap<String, Entry> resources = new ConcurrentHashMap<>();
+    final long maximumSize;
+    final long maximumWeight;
+    final long failureTtl;
+    final long maximumFailureTtl;
+    final PropertyStringPool stringPool;
+    final Charset propertiesCharset;
+    final AtomicLong totalWeight = new AtomicLong();
+    /*
+     * Coarse clock for least-recently-used ordering, advanced only when a
+     * resource is loaded. An entry takes the next access sequence number at
+     * most once per tick, so repeated lookups of a resource only read shared
+     * state while eviction still follows the order of access between loads.
+     */
+    final AtomicLong accessClock = new AtomicLong();
+    final AtomicLong accessSequence = new AtomicLong();
+    final boolean tracksAccess;
+    final ConcurrentMap<String, List<Runnable>> listeners = new ConcurrentHashMap<>();
+    final ConcurrentMap<String, List<Runnable>> systemPropertyListeners = new ConcurrentHashMap<>();
+    final ConcurrentMap<Object, ConvertedValue> convertedValues = new ConcurrentHashMap<>();
+    final Set<String> convertedResources = ConcurrentHashMap.newKeySet();
+    final Set<String> convertedSystemProperties = ConcurrentHashMap.newKeySet();
+    final PropertySystemOverlay systemProperties = new PropertySystemOverlay();
+    final int connectTimeout;
+    final int readTimeout;
+    ScheduledExecutorService scheduler;
+    private ExecutorService loadExecutor;
+    private ScheduledFuture<?> systemPropertyRefresh;
+    private boolean started;
+    private PropertyResourceWatcher watcher;
+
+    /**
+     * Typed value of an injection point converted during deployment. The value
+     * may be null.
+     */
+    static final class ConvertedValue {
+        final Object value;
+        final String resourceId;
+        final String systemProperty;
+
+        ConvertedValue(Object value, String resourceId, String systemProperty) {
+            this.value = value;
+            this.resourceId = resourceId;
+            this.systemProperty = systemProperty;
+        }
+    }
+
+    static class Entry {
+        final URL resourceUrl;
+        final PropertyResourceFormat format;
+        final Duration refreshInterval;
+        final boolean watch;
+        final boolean mapped;
+        FutureTask<PropertySnapshot> loader;
+        volatile PropertySnapshot snapshot;
+        volatile long lastAccess;
+        volatile long accessOrder;
+        long weight;
+        volatile String entityTag;
+        volatile String lastModified;
+        ScheduledFuture<?> refresh;
+        Path watchedFile;
+        final int failures;
+        volatile long retryAt;
+        volatile boolean failureLogged;
+        final AtomicBoolean busy = new AtomicBoolean();
+
+        Entry(URL resourceUrl,
+              PropertyResourceFormat format,
+              Duration refreshInterval,
+              boolean watch,
+              boolean mapped,
+              int failures) {
+            this.resourceUrl = resourceUrl;
+            this.format = format;
+            this.refreshInterval = refreshInterval;
+            this.watch = watch;
+            this.mapped = mapped;
+            this.failures = failures;
+        }
+
+        boolean isRetryDue(long now) {
+            return loader.isDone() && snapshot == null && now - retryAt >= 0;
+        }
+    }
+
+    public PropertyResourceRegistry() {
+        this(Long.getLong(MAXIMUM_SIZE_PROPERTY, Long.MAX_VALUE),
+             Long.getLong(MAXIMUM_WEIGHT_PROPERTY, Long.MAX_VALUE),
+             Long.getLong(FAILURE_TTL_PROPERTY, TimeUnit.SECONDS.toMillis(10)),
+             Long.getLong(MAXIMUM_FAILURE_TTL_PROPERTY, TimeUnit.MINUTES.toMillis(5)),
+             Boolean.parseBoolean(System.getProperty(DEDUPLICATE_STRINGS_PROPERTY, "false")),
+             Charset.forName(System.getProperty(PROPERTIES_CHARSET_PROPERTY, "ISO-8859-1")));
+    }
+
+    PropertyResourceRegistry(long maximumSize, long maximumWeight) {
+        this(maximumSize, maximumWeight, 0, 0);
+    }
+
+    PropertyResourceRegistry(long maximumSize, long maximumWeight, long failureTtl, long maximumFailureTtl) {
+        this(maximumSize, maximumWeight, failureTtl, maximumFailureTtl, false, StandardCharsets.ISO_8859_1);
+    }
+
+    PropertyResourceRegistry(long maximumSize,
+                             long maximumWeight,
+                             long failureTtl,
+                             long maximumFailureTtl,
+                             boolean deduplicateStrings,
+                             Charset propertiesCharset) {
+        this.maximumSize = maximumSize;
+        this.maximumWeight = maximumWeight;
+        this.tracksAccess = maximumSize != Long.MAX_VALUE || maximumWeight != Long.MAX_VALUE;
+        this.failureTtl = failureTtl;
+        this.maximumFailureTtl = Math.max(failureTtl, maximumFailureTtl);
+        this.stringPool = deduplicateStrings ? new PropertyStringPool() : null;
+        this.propertiesCharset = propertiesCharset;
+        this.connectTimeout = Integer.getInteger(CONNECT_TIMEOUT_PROPERTY, (int) TimeUnit.SECONDS.toMillis(10));
+        this.readTimeout = Integer.getInteger(READ_TIMEOUT_PROPERTY, (int) TimeUnit.SECONDS.toMillis(30));
+    }
+
+    /**
+     * Retrieve the number of resources currently held by the registry.
+     *
+     * @return the number of loaded resources
+     */
+    public int size() {
+        return (int) resources.values().stream().filter(e -> e.snapshot != null).count();
+    }
+
+    /**
+     * Retrieve the total weight of the resources currently held by the
+     * registry, measured as the number of characters in all keys and values.
+     *
+     * @return the total weight of loaded resources
+     */
+    public long weight() {
+        return totalWeight.get();
+    }
+
+    /**
+     * Retrieve the number of keys and values in the resources currently held
+     * by the registry that share an instance with an equal key or value,
+     * rather than holding a copy of their own.
+     *
+     * @return the number of duplicate strings not retained, or 0 when
+     *         deduplication is disabled
+     */
+    public long deduplicatedStrings() {
+        return sharedStrings().values().stream().mapToLong(references -> references - 1L).sum();
+    }
+
+    /**
+     * Retrieve the approximate number of bytes of heap not retained by the
+     * resources currently held by the registry as a result of sharing a single
+     * instance of equal keys and values.
+     *
+     * @return the approximate number of bytes saved, or 0 when deduplication
+     *         is disabled
+     */
+    public long deduplicatedBytes() {
+        return sharedStrings().entrySet()
+                              .stream()
+                              .mapToLong(e -> (e.getValue() - 1L) * PropertyStringPool.sizeOf(e.getKey()))
+                              .sum();
+    }
+
+    Map<String, Integer> sharedStrings() {
+        if (stringPool == null) {
+            return Collections.emptyMap();
+        }
+
+        return PropertyStringPool.references(resources.values()
+                                                      .stream()
+                                                      .map(e -> e.snapshot)
+                                                      .filter(Objects::nonNull)
+                                                      .collect(Collectors.toList()));
+    }
+
+    /**
+     * Retrieve a point-in-time view of the resources held by the registry,
+     * keyed by the resource URL. Resources that are still being loaded are not
+     * included.
+     *
+     * @return unmodifiable map of resource URLs to read-only views of the
+     *         loaded properties
+     */
+    public Map<String, Properties> getResources() {
+        Map<String, Properties> loaded = new TreeMap<>();
+
+        resources.forEach((resourceId, entry) -> {
+            final PropertySnapshot snapshot = entry.snapshot;
+
+            if (snapshot != null) {
+                loaded.put(resourceId, snapshot.toReadOnlyProperties());
+            }
+        });
+
+        return Collections.unmodifiableMap(loaded);
+    }
+
+    /**
+     * Read the current values of the system properties used to override
+     * injected values. Values injected after the refresh will reflect changes
+     * made to the system properties since they were last read.
+     */
+    public void refreshSystemProperties() {
+        for (String name : systemProperties.refresh()) {
+            notifyListeners(systemPropertyListeners, name);
+        }
+    }
+
+    /*
+     * Register a listener to be notified when the value of a system property
+     * is found to have changed by a refresh.
+     */
+    void addSystemPropertyListener(String name, Runnable listener) {
+        systemPropertyListeners.computeIfAbsent(name, n -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    String getSystemProperty(String name) {
+        return systemProperties.get(name);
+    }
+
+    /*
+     * Register a listener to be notified each time the resource is reloaded,
+     * including a load following eviction.
+     */
+    void addListener(String resourceId, Runnable listener) {
+        listeners.computeIfAbsent(resourceId, id -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    void putConvertedValue(Object injectionKey, String resourceId, Object value) {
+        putConvertedValue(injectionKey, resourceId, null, value);
+    }
+
+    /*
+     * Store the converted value of an injection point, discarded when the
+     * resource it was read from is reloaded or a refresh changes the system
+     * property that overrides it. A single listener is registered for each
+     * resource and system property, regardless of the number of values.
+     */
+    void putConvertedValue(Object injectionKey, String resourceId, String systemProperty, Object value) {
+        if (convertedResources.add(resourceId)) {
+            addListener(resourceId, () -> convertedValues.values().removeIf(v -> resourceId.equals(v.resourceId)));
+        }
+        if (systemProperty != null && convertedSystemProperties.add(systemProperty)) {
+            addSystemPropertyListener(systemProperty,
+                                      () -> convertedValues.values().removeIf(v -> systemProperty.equals(v.systemProperty)));
+        }
+
+        convertedValues.put(injectionKey, new ConvertedValue(value, resourceId, systemProperty));
+    }
+
+    ConvertedValue getConvertedValue(Object injectionKey) {
+        return convertedValues.isEmpty() ? null : convertedValues.get(injectionKey);
+    }
+
+    void notifyListeners(String resourceId) {
+        notifyListeners(listeners, resourceId);
+    }
+
+    static void notifyListeners(Map<String, List<Runnable>> listeners, String key) {
+        final List<Runnable> keyListeners = listeners.get(key);
+
+        if (keyListeners != null) {
+            keyListeners.forEach(Runnable::run);
+        }
+    }
+
+    Properties getProperties(final URL resourceUrl,
+                             final PropertyResourceFormat format,
+                             boolean allowMissingResource) throws IOException {
+        return getProperties(resourceUrl, format, allowMissingResource, Duration.ZERO, false);
+    }
+
+    Properties getProperties(final URL resourceUrl,
+                             final PropertyResourceFormat format,
+                             boolean allowMissingResource,
+                             Duration refreshInterval,
+                             boolean watch) throws IOException {
+
+        final PropertySnapshot snapshot = getSnapshot(resourceUrl, format, allowMissingResource, refreshInterval, watch);
+        return snapshot == PropertySnapshot.EMPTY ? new Properties() : snapshot.toProperties();
+    }
+
+    PropertySnapshot getSnapshot(final URL resourceUrl,
+                                 final PropertyResourceFormat format,
+                                 boolean allowMissingResource) throws IOException {
+        return getSnapshot(resourceUrl, format, allowMissingResource, Duration.ZERO, false);
+    }
+
+    PropertySnapshot getSnapshot(final URL resourceUrl,
+                                 final PropertyResourceFormat format,
+                                 boolean allowMissingResource,
+                                 Duration refreshInterval,
+                                 boolean watch) throws IOException {
+        return getSnapshot(resourceUrl, format, allowMissingResource, refreshInterval, watch, false);
+    }
+
+    /*
+     * The first caller for a resource performs the load while concurrent callers
+     * wait for and share its result. A failed load remains in the registry until
+     * its retry time has passed, after which the next caller will try again.
+     */
+    PropertySnapshot getSnapshot(final URL resourceUrl,
+                                 final PropertyResourceFormat format,
+                                 boolean allowMissingResource,
+                                 Duration refreshInterval,
+                                 boolean watch,
+                                 boolean mapped) throws IOException {
+
+        final String resourceId = resourceUrl.toString();
+        Entry entry;
+
+        for (;;) {
+            entry = resources.get(resourceId);
+
+            if (entry == null) {
+                final Entry created = newEntry(resourceUrl, format, refreshInterval, watch, mapped, 0);
+
+                if (resources.putIfAbsent(resourceId, created) == null) {
+                    entry = load(resourceId, created);
+                    break;
+                }
+            } else {
+                final PropertySnapshot snapshot = entry.snapshot;
+
+                if (tracksAccess) {
+                    touch(entry);
+                }
+
+                if (snapshot != null) {
+                    return snapshot;
+                }
+
+                if (!entry.isRetryDue(System.nanoTime())) {
+                    break;
+                }
+
+                final Entry created = newEntry(resourceUrl, format, refreshInterval, watch, mapped, entry.failures + 1);
+
+                if (resources.replace(resourceId, entry, created)) {
+                    release(entry);
+                    entry = load(resourceId, created);
+                    break;
+                }
+            }
+        }
+
+        try {
+            return entry.loader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted loading resource: " + resourceUrl);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+
+            if (cause instanceof FileNotFoundException && allowMissingResource) {
+                if (!entry.failureLogged) {
+                    entry.failureLogged = true;
+                    logger.log(Level.WARNING, "Resource not found: " + resourceUrl, cause);
+                }
+                return PropertySnapshot.EMPTY;
+            }
+
+            throw asIOException(cause);
+        }
+    }
+
+    void touch(Entry entry) {
+        final long stamp = accessClock.get();
+
+        if (entry.lastAccess != stamp) {
+            entry.lastAccess = stamp;
+            entry.accessOrder = accessSequence.incrementAndGet();
+        }
+    }
+
+    Entry newEntry(URL resourceUrl,
+                   PropertyResourceFormat format,
+                   Duration refreshInterval,
+                   boolean watch,
+                   boolean mapped,
+                   int failures) {
+        final Entry entry = new Entry(resourceUrl, format, refreshInterval, watch, mapped, failures);
+        entry.lastAccess = accessClock.get();
+        entry.accessOrder = accessSequence.incrementAndGet();
+
+        entry.loader = new FutureTask<>(() -> {
+            try {
+                final PropertySnapshot snapshot = load(entry);
+                loaded(resourceUrl.toString(), entry, snapshot);
+                return snapshot;
+            } catch (Exception e) {
+                entry.retryAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(failureTtl(failures));
+                throw e;
+            }
+        });
+
+        return entry;
+    }
+
+    /*
+     * Runs the entry's loader, which publishes the snapshot only once it has
+     * been accounted for (see loaded).
+     */
+    Entry load(String resourceId, Entry entry) {
+        entry.loader.run();
+
+        if (entry.snapshot != null) {
+            notifyListeners(resourceId);
+        } else {
+            failed(resourceId, entry);
+        }
+
+        return entry;
+    }
+
+    /*
+     * Schedules another attempt to load a resource that could not be loaded,
+     * so that a resource becoming available later is picked up (and listeners
+     * notified) without a caller requesting it again. A missing file that is
+     * to be watched is also watched, so it is loaded as soon as it is created.
+     */
+    synchronized void failed(String resourceId, Entry entry) {
+        if (resources.get(resourceId) != entry) {
+            return;
+        }
+
+        final long delay = failureTtl(entry.failures);
+
+        /*
+         * Only a started registry retries in the background. Other registries
+         * are never shut down, and retry lazily on the next request.
+         */
+        if (delay > 0 && started) {
+            entry.refresh = scheduler().schedule(() -> dispatch(entry, () -> retry(resourceId, entry)),
+                                                 delay,
+                                                 TimeUnit.MILLISECONDS);
+        }
+
+        watchFile(resourceId, entry);
+    }
+
+    void retry(String resourceId, Entry entry) {
+        if (resources.get(resourceId) != entry || entry.snapshot != null) {
+            return;
+        }
+
+        final Entry created = newEntry(entry.resourceUrl,
+                                       entry.format,
+                                       entry.refreshInterval,
+                                       entry.watch,
+                                       entry.mapped,
+                                       entry.failures + 1);
+
+        if (resources.replace(resourceId, entry, created)) {
+            release(entry);
+            load(resourceId, created);
+        }
+    }
+
+    long failureTtl(int failures) {
+        final long ttl = failureTtl << Math.min(failures, 30);
+        return ttl < 0 || ttl > maximumFailureTtl ? maximumFailureTtl : ttl;
+    }
+
+    PropertySnapshot load(Entry entry) throws IOException {
+        if (isMapped(entry)) {
+            return map(entry);
+        }
+
+        final URLConnection connection = openConnection(entry.resourceUrl);
+        final PropertySnapshot snapshot;
+
+        try (InputStream resourceStream = connection.getInputStream()) {
+            snapshot = loadSnapshot(resourceStream, entry.format);
+        }
+
+        if (connection instanceof HttpURLConnection) {
+            entry.entityTag = connection.getHeaderField("ETag");
+            entry.lastModified = connection.getHeaderField("Last-Modified");
+        }
+
+        return snapshot;
+    }
+
+    /*
+     * Mapped resources are decoded on demand and support only ISO-8859-1.
+     * Binary files are always mapped.
+     */
+    boolean isMapped(Entry entry) {
+        if (!"file".equals(entry.resourceUrl.getProtocol())) {
+            return false;
+        }
+        if (entry.format == PropertyResourceFormat.BINARY) {
+            return true;
+        }
+        return entry.mapped
+                && entry.format == PropertyResourceFormat.PROPERTIES
+                && StandardCharsets.ISO_8859_1.equals(propertiesCharset);
+    }
+
+    static PropertySnapshot map(Entry entry) throws IOException {
+        final Path file = toPath(entry.resourceUrl);
+
+        try {
+            if (entry.format == PropertyResourceFormat.BINARY) {
+                return BinaryPropertySnapshot.map(file);
+            }
+            return MappedPropertySnapshot.map(file);
+        } catch (NoSuchFileException e) {
+            FileNotFoundException notFound = new FileNotFoundException(file.toString());
+            notFound.initCause(e);
+            throw notFound;
+        }
+    }
+
+    /*
+     * Converts a file: URL to a path. URLs with a relative path (e.g.
+     * file:./resource.properties) are not valid URIs and are resolved using
+     * the path of the URL.
+     */
+    static Path toPath(URL fileUrl) {
+        try {
+            return Paths.get(fileUrl.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return Paths.get(fileUrl.getPath());
+        }
+    }
+
+    PropertySnapshot loadSnapshot(final InputStream resourceStream, final PropertyResourceFormat format) throws IOException {
+        if (format == PropertyResourceFormat.BINARY) {
+            return BinaryPropertySnapshot.of(PropertyLineReader.read(resourceStream));
+        }
+
+        final UnaryOperator<String> canonicalizer = stringPool != null ? stringPool : UnaryOperator.identity();
+        final PropertySnapshot.Builder builder = new PropertySnapshot.Builder(canonicalizer);
+
+        switch (format) {
+        case XML:
+            PropertyXmlReader.read(resourceStream, builder::put);
+            break;
+        case JSON:
+            PropertyJsonReader.read(resourceStream, builder::put);
+            break;
+        default:
+            final PropertyLineReader reader = PropertyLineReader.of(resourceStream, propertiesCharset);
+
+            while (reader.readLine()) {
+                builder.put(reader.key(), reader.value());
+            }
+            break;
+        }
+
+        return builder.build();
+    }
+
+    /*
+     * Accounts for a newly loaded snapshot, evicting other resources as
+     * necessary, and only then publishes it to readers of the entry.
+     */
+    synchronized boolean loaded(String resourceId, Entry entry, PropertySnapshot snapshot) {
+        if (resources.get(resourceId) != entry) {
+            return false;
+        }
+
+        entry.weight = snapshot.weight();
+        totalWeight.addAndGet(entry.weight);
+        accessClock.incrementAndGet();
+
+        while (resources.size() > maximumSize || totalWeight.get() > maximumWeight) {
+            if (!evictLeastRecentlyUsed(entry)) {
+                break;
+            }
+        }
+
+        entry.snapshot = snapshot;
+        scheduleRefresh(resourceId, entry);
+        watchFile(resourceId, entry);
+        return true;
+    }
+
+    void replaced(String resourceId, Entry entry, PropertySnapshot snapshot) {
+        if (replace(resourceId, entry, snapshot)) {
+            notifyListeners(resourceId);
+        }
+    }
+
+    synchronized boolean replace(String resourceId, Entry entry, PropertySnapshot snapshot) {
+        if (resources.get(resourceId) != entry) {
+            return false;
+        }
+
+        totalWeight.addAndGet(snapshot.weight() - entry.weight);
+        entry.weight = snapshot.weight();
+        entry.snapshot = snapshot;
+
+        if (logger.isLoggable(Level.FINE)) {
+            logger.log(Level.FINE, "Reloaded resource: " + resourceId);
+        }
+
+        return true;
+    }
+
+    boolean evictLeastRecentlyUsed(Entry retained) {
+        String eldestId = null;
+        Entry eldest = null;
+
+        for (Map.Entry<String, Entry> candidate : resources.entrySet()) {
+            final Entry e = candidate.getValue();
+
+            if (e != retained && e.loader.isDone() && (eldest == null || e.accessOrder < eldest.accessOrder)) {
+                eldestId = candidate.getKey();
+                eldest = e;
+            }
+        }
+
+        if (eldest != null && resources.remove(eldestId, eldest)) {
+            totalWeight.addAndGet(-eldest.weight);
+            release(eldest);
+
+            if (logger.isLoggable(Level.FINER)) {
+                logger.log(Level.FINER, "Evicted resource: " + eldestId);
+            }
+        }
+
+        return eldest != null;
+    }
+
+    URLConnection openConnection(URL resourceUrl) throws IOException {
+        final URLConnection connection = resourceUrl.openConnection();
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        return connection;
+    }
+
+    /*
+     * Runs a background load of the entry's resource on the load pool rather
+     * than the scheduler thread shared by all resources. A task is skipped
+     * while the previous task for the same entry is still running.
+     */
+    void dispatch(Entry entry, Runnable task) {
+        if (!entry.busy.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            loadExecutor().execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    entry.busy.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.busy.set(false);
+        }
+    }
+
+    void scheduleRefresh(String resourceId, Entry entry) {
+        final long interval = entry.refreshInterval.toMillis();
+        final String protocol = entry.resourceUrl.getProtocol();
+
+        if (interval > 0 && ("http".equals(protocol) || "https".equals(protocol))) {
+            entry.refresh = scheduler().scheduleWithFixedDelay(() -> dispatch(entry, () -> refresh(resourceId, entry)),
+                                                               interval,
+                                                               interval,
+                                                               TimeUnit.MILLISECONDS);
+        }
+    }
+
+    void watchFile(String resourceId, Entry entry) {
+        if (!entry.watch || !"file".equals(entry.resourceUrl.getProtocol())) {
+            return;
+        }
+
+        try {
+            final Path file = toPath(entry.resourceUrl);
+            watcher().watch(file, () -> changed(resourceId, entry));
+            entry.watchedFile = file;
+        } catch (IOException | IllegalArgumentException e) {
+            logger.log(Level.WARNING, "Unable to watch resource for changes: " + resourceId, e);
+        }
+    }
+
+    void release(Entry entry) {
+        cancelRefresh(entry);
+
+        if (entry.watchedFile != null) {
+            watcher().unwatch(entry.watchedFile);
+        }
+    }
+
+    static void cancelRefresh(Entry entry) {
+        if (entry.refresh != null) {
+            entry.refresh.cancel(false);
+        }
+    }
+
+    void changed(String resourceId, Entry entry) {
+        if (entry.snapshot == null) {
+            retry(resourceId, entry);
+        } else {
+            reload(resourceId, entry);
+        }
+    }
+
+    void reload(String resourceId, Entry entry) {
+        if (resources.get(resourceId) != entry) {
+            return;
+        }
+
+        try {
+            if (isMapped(entry)) {
+                replaced(resourceId, entry, map(entry));
+            } else {
+                try (InputStream resourceStream = openConnection(entry.resourceUrl).getInputStream()) {
+                    replaced(resourceId, entry, loadSnapshot(resourceStream, entry.format));
+                }
+            }
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to reload resource: " + resourceId, e);
+        }
+    }
+
+    void refresh(String resourceId, Entry entry) {
+        if (resources.get(resourceId) != entry) {
+            cancelRefresh(entry);
+            return;
+        }
+
+        try {
+            final HttpURLConnection connection = (HttpURLConnection) openConnection(entry.resourceUrl);
+            final String entityTag = entry.entityTag;
+            final String lastModified = entry.lastModified;
+
+            if (entityTag != null) {
+                connection.setRequestProperty("If-None-Match", entityTag);
+            }
+            if (lastModified != null) {
+                connection.setRequestProperty("If-Modified-Since", lastModified);
+            }
+
+            try (InputStream resourceStream = connection.getInputStream()) {
+                if (connection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                    return;
+                }
+
+                final PropertySnapshot snapshot = loadSnapshot(resourceStream, entry.format);
+                entry.entityTag = connection.getHeaderField("ETag");
+                entry.lastModified = connection.getHeaderField("Last-Modified");
+                replaced(resourceId, entry, snapshot);
+            }
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to refresh resource: " + resourceId, e);
+        }
+    }
+
+    synchronized ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, task -> {
+                Thread thread = new Thread(task, "property-inject-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            scheduler = executor;
+        }
+        return scheduler;
+    }
+
+    synchronized ExecutorService loadExecutor() {
+        if (loadExecutor == null) {
+            loadExecutor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), task -> {
+                Thread thread = new Thread(task, "property-inject-load");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return loadExecutor;
+    }
+
+    synchronized PropertyResourceWatcher watcher() {
+        if (watcher == null) {
+            watcher = new PropertyResourceWatcher();
+        }
+        return watcher;
+    }
+
+    /*
+     * Starts the background tasks of a registry managed for a deployment,
+     * stopped by shutdown. Registries created for other purposes (e.g. by
+     * PropertyResourceConverter) never start threads of their own for
+     * system properties.
+     */
+    void start() {
+        start(Long.getLong(SYSTEM_PROPERTY_REFRESH_INTERVAL_PROPERTY, 0));
+    }
+
+    synchronized void start(long systemPropertyRefreshInterval) {
+        started = true;
+
+        if (systemPropertyRefreshInterval > 0 && systemPropertyRefresh == null) {
+            systemPropertyRefresh = scheduler().scheduleWithFixedDelay(this::refreshSystemProperties,
+                                                                       systemPropertyRefreshInterval,
+                                                                       systemPropertyRefreshInterval,
+                                                                       TimeUnit.MILLISECONDS);
+        }
+    }
+
+    synchronized void shutdown() {
+        started = false;
+        systemPropertyRefresh = null;
+
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (loadExecutor != null) {
+            loadExecutor.shutdownNow();
+            loadExecutor = null;
+        }
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+    }
+
+    static IOException asIOException(Throwable cause) {
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IOException(cause);
+    }
+}
@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Watches the parent directories of file resources for changes and notifies
+ * the listener registered for a file when that file is created or modified.
+ * A single {@link WatchService} and thread are used for each file system,
+ * regardless of the number of files being watched.
+ *
+ * A file may change without any event naming it, e.g. on a Kubernetes
+ * ConfigMap or Secret volume where the file is a symbolic link through a
+ * <code>..data</code> link that is atomically replaced on update. Any event
+ * in a directory therefore causes each file watched in it to be checked for
+ * a change of its resolved path, modification time or size.
+ */
+class PropertyResourceWatcher {
+
+    private static final Logger logger = Logger.getLogger(PropertyResourceWatcher.class.getName());
+
+    private final Map<FileSystem, WatchService> services = new HashMap<>();
+    private final Map<Path, WatchKey> directories = new HashMap<>();
+    private final ConcurrentMap<Path, Watch> listeners = new ConcurrentHashMap<>();
+
+    static final class Watch {
+        final Runnable listener;
+        volatile String state;
+
+        Watch(Runnable listener, String state) {
+            this.listener = listener;
+            this.state = state;
+        }
+    }
+
+    synchronized void watch(Path file, Runnable listener) throws IOException {
+        final Path target = file.toAbsolutePath().normalize();
+        final Path directory = target.getParent();
+
+        listeners.put(target, new Watch(listener, state(target)));
+
+        if (!directories.containsKey(directory)) {
+            WatchService service = services.get(directory.getFileSystem());
+
+            if (service == null) {
+                service = directory.getFileSystem().newWatchService();
+                services.put(directory.getFileSystem(), service);
+                start(service);
+            }
+
+            directories.put(directory, directory.register(service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE));
+        }
+    }
+
+    synchronized void unwatch(Path file) {
+        final Path target = file.toAbsolutePath().normalize();
+        final Path directory = target.getParent();
+
+        listeners.remove(target);
+
+        if (listeners.keySet().stream().noneMatch(f -> directory.equals(f.getParent()))) {
+            final WatchKey key = directories.remove(directory);
+
+            if (key != null) {
+                key.cancel();
+            }
+        }
+    }
+
+    synchronized void close() {
+        for (WatchService service : services.values()) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                logger.log(Level.FINE, "Exception closing watch service", e);
+            }
+        }
+
+        services.clear();
+        directories.clear();
+        listeners.clear();
+    }
+
+    void start(WatchService service) {
+        final Thread thread = new Thread(() -> process(service), "property-inject-watch");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void process(WatchService service) {
+        for (;;) {
+            final WatchKey key;
+
+            try {
+                key = service.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            }
+
+            final Path directory = (Path) key.watchable();
+            final Set<Path> named = new HashSet<>();
+
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() != OVERFLOW) {
+                    named.add(directory.resolve((Path) event.context()));
+                }
+            }
+
+            listeners.forEach((file, watch) -> {
+                if (directory.equals(file.getParent())) {
+                    final String state = state(file);
+
+                    if (named.contains(file) || !Objects.equals(state, watch.state)) {
+                        watch.state = state;
+                        notify(file, watch.listener);
+                    }
+                }
+            });
+
+            key.reset();
+        }
+    }
+
+    /*
+     * Identifies the current content of a file by the target of any links,
+     * its modification time and its size, or null when it does not exist.
+     */
+    static String state(Path file) {
+        try {
+            final Path target = file.toRealPath();
+            final BasicFileAttributes attributes = Files.readAttributes(target, BasicFileAttributes.class);
+            return target.toString() + '|' + attributes.lastModifiedTime().toMillis() + '|' + attributes.size();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    static void notify(Path file, Runnable listener) {
+        try {
+            listener.run();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Exception processing change to file: " + file, e);
+        }
+    }
+}
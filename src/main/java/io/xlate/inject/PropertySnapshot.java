@@ -0,0 +1,391 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.InvalidPropertiesFormatException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Immutable, read-optimized set of properties loaded from a resource. The
+ * default implementation holds keys and values in a single open-addressing
+ * array, so lookups are lock-free and allocate nothing. Keys and values may be
+ * replaced with canonical instances when the snapshot is built (see
+ * {@link PropertyStringPool}), so that equal strings in resources held by the
+ * same registry are stored once.
+ *
+ * @see MappedPropertySnapshot
+ */
+abstract class PropertySnapshot {
+
+    static final PropertySnapshot EMPTY = new Builder().build();
+
+    private volatile Properties properties;
+    private volatile Properties readOnlyProperties;
+    private volatile ConcurrentMap<ConversionKey, Conversion> conversions;
+    private volatile Interpolation interpolation;
+
+    static PropertySnapshot of(Properties source) {
+        return of(source, UnaryOperator.identity());
+    }
+
+    static PropertySnapshot of(Properties source, UnaryOperator<String> canonicalizer) {
+        final Builder builder = new Builder(canonicalizer);
+
+        for (Map.Entry<Object, Object> entry : source.entrySet()) {
+            if (entry.getKey() instanceof String && entry.getValue() instanceof String) {
+                builder.put((String) entry.getKey(), (String) entry.getValue());
+            }
+        }
+
+        return builder.build();
+    }
+
+    static int shift(int capacity) {
+        return Integer.SIZE - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    /*
+     * Fibonacci hashing - spreads the sequential hash codes typical of property
+     * keys (e.g. "item1", "item2") across the table to keep probe sequences short.
+     */
+    static int index(int hashCode, int shift) {
+        return (hashCode * 0x9E3779B9) >>> shift;
+    }
+
+    abstract String get(String key);
+
+    String get(String key, String defaultValue) {
+        final String value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    abstract int size();
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /*
+     * The weight of the snapshot for the purpose of bounding the registry,
+     * measured in characters.
+     */
+    abstract long weight();
+
+    abstract void forEach(BiConsumer<String, String> action);
+
+    /*
+     * A Properties equivalent of this snapshot, created on first use and shared
+     * by subsequent callers. Creation is synchronized so that concurrent first
+     * callers receive the same instance.
+     */
+    Properties toProperties() {
+        Properties result = properties;
+
+        if (result == null) {
+            synchronized (this) {
+                result = properties;
+
+                if (result == null) {
+                    result = newProperties();
+                    properties = result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /*
+     * A read-only Properties view of this snapshot, created on first use and
+     * shared by subsequent callers. The view is backed by its own copy so that
+     * changes to the result of toProperties are not visible through it.
+     */
+    Properties toReadOnlyProperties() {
+        Properties result = readOnlyProperties;
+
+        if (result == null) {
+            synchronized (this) {
+                result = readOnlyProperties;
+
+                if (result == null) {
+                    result = SharedProperties.readOnly(newProperties());
+                    readOnlyProperties = result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private Properties newProperties() {
+        final Properties result = new Properties();
+        forEach(result::setProperty);
+        return result;
+    }
+
+    PropertySnapshot interpolated(Map<String, String> environment, UnaryOperator<String> systemProperties) throws InvalidPropertiesFormatException {
+        return interpolated(environment, systemProperties, 0);
+    }
+
+    /*
+     * This snapshot with references in its values expanded (see
+     * PropertyInterpolator), created on first use with a given environment and
+     * generation of system property values, and shared by subsequent callers.
+     * Like conversions, the result is discarded with this snapshot when the
+     * resource is reloaded.
+     */
+    PropertySnapshot interpolated(Map<String, String> environment,
+                                  UnaryOperator<String> systemProperties,
+                                  long generation) throws InvalidPropertiesFormatException {
+        if (this == EMPTY) {
+            return this;
+        }
+
+        Interpolation result = interpolation;
+
+        if (result == null || result.environment != environment || result.generation != generation) {
+            result = new Interpolation(environment, generation, PropertyInterpolator.interpolate(this, environment, systemProperties));
+            interpolation = result;
+        }
+
+        return result.snapshot;
+    }
+
+    /*
+     * Converts the value of a property, reusing the result of an earlier
+     * conversion of the same value for the same key, type and pattern. The
+     * cache belongs to this snapshot and is discarded with it when the
+     * resource is reloaded. Results of mutable types (Date) are copied.
+     * Conversions are not cached by EMPTY, which is shared by every missing
+     * resource and never discarded.
+     */
+    <T> T convert(String key, Class<T> type, String pattern, String value, PropertyConverters.Converter<T> converter) throws Exception {
+        if (this == EMPTY) {
+            return converter.convert(value, pattern);
+        }
+
+        ConcurrentMap<ConversionKey, Conversion> cache = conversions;
+
+        if (cache == null) {
+            synchronized (this) {
+                cache = conversions;
+
+                if (cache == null) {
+                    cache = new ConcurrentHashMap<>();
+                    conversions = cache;
+                }
+            }
+        }
+
+        final ConversionKey conversionKey = new ConversionKey(key, type, pattern);
+        final Conversion conversion = cache.get(conversionKey);
+        final Object result;
+
+        if (conversion != null && (conversion.value == value || conversion.value.equals(value))) {
+            result = conversion.result;
+        } else {
+            result = converter.convert(value, pattern);
+            cache.put(conversionKey, new Conversion(value, result));
+        }
+
+        return type.cast(result instanceof Date ? ((Date) result).clone() : result);
+    }
+
+    static final class ConversionKey {
+        final String key;
+        final Class<?> type;
+        final String pattern;
+        final int hashCode;
+
+        ConversionKey(String key, Class<?> type, String pattern) {
+            this.key = key;
+            this.type = type;
+            this.pattern = pattern;
+            this.hashCode = Objects.hash(key, type, pattern);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof ConversionKey)) {
+                return false;
+            }
+            ConversionKey other = (ConversionKey) obj;
+            return type == other.type && key.equals(other.key) && pattern.equals(other.pattern);
+        }
+    }
+
+    static final class Interpolation {
+        final Map<String, String> environment;
+        final long generation;
+        final PropertySnapshot snapshot;
+
+        Interpolation(Map<String, String> environment, long generation, PropertySnapshot snapshot) {
+            this.environment = environment;
+            this.generation = generation;
+            this.snapshot = snapshot;
+        }
+    }
+
+    static final class Conversion {
+        final String value;
+        final Object result;
+
+        Conversion(String value, Object result) {
+            this.value = value;
+            this.result = result;
+        }
+    }
+
+    static final class Table extends PropertySnapshot {
+        /* Keys at even indexes, each followed by its value */
+        private final String[] table;
+        private final int mask;
+        private final int shift;
+        private final int size;
+        private final long weight;
+
+        private Table(String[] table, int size, long weight) {
+            this.table = table;
+            this.mask = (table.length >> 1) - 1;
+            this.shift = shift(table.length >> 1);
+            this.size = size;
+            this.weight = weight;
+        }
+
+        @Override
+        String get(String key) {
+            int index = index(key.hashCode(), shift);
+
+            for (;;) {
+                final String candidate = table[index << 1];
+
+                if (candidate == null) {
+                    return null;
+                }
+                if (candidate == key || candidate.equals(key)) {
+                    return table[(index << 1) + 1];
+                }
+
+                index = (index + 1) & mask;
+            }
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        /*
+         * The number of characters in all keys and values.
+         */
+        @Override
+        long weight() {
+            return weight;
+        }
+
+        @Override
+        void forEach(BiConsumer<String, String> action) {
+            for (int i = 0; i < table.length; i += 2) {
+                if (table[i] != null) {
+                    action.accept(table[i], table[i + 1]);
+                }
+            }
+        }
+    }
+
+    /*
+     * Collects keys and values in the order they are read. When a key is put
+     * more than once, the last value is retained.
+     */
+    static final class Builder {
+        private final UnaryOperator<String> canonicalizer;
+        private String[] entries = new String[32];
+        private int count;
+
+        Builder() {
+            this(UnaryOperator.identity());
+        }
+
+        Builder(UnaryOperator<String> canonicalizer) {
+            this.canonicalizer = canonicalizer;
+        }
+
+        Builder put(String key, String value) {
+            if (count == entries.length) {
+                entries = Arrays.copyOf(entries, count << 1);
+            }
+
+            entries[count++] = key;
+            entries[count++] = value;
+            return this;
+        }
+
+        PropertySnapshot build() {
+            int capacity = 2;
+
+            while (capacity < count) {
+                capacity <<= 1;
+            }
+
+            final String[] table = new String[capacity << 1];
+            final int mask = capacity - 1;
+            final int shift = shift(capacity);
+            int size = 0;
+            long weight = 0;
+
+            for (int i = 0; i < count; i += 2) {
+                final String key = canonicalizer.apply(entries[i]);
+                final String value = canonicalizer.apply(entries[i + 1]);
+                int index = index(key.hashCode(), shift);
+                String existing;
+
+                while ((existing = table[index << 1]) != null && !existing.equals(key)) {
+                    index = (index + 1) & mask;
+                }
+
+                if (existing != null) {
+                    weight -= table[(index << 1) + 1].length();
+                } else {
+                    table[index << 1] = key;
+                    weight += key.length();
+                    size++;
+                }
+
+                table[(index << 1) + 1] = value;
+                weight += value.length();
+            }
+
+            return new Table(table, size, weight);
+        }
+    }
+}
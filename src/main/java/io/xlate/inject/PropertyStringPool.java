@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import java.lang.ref.WeakReference;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * Replaces the strings parsed from a resource with a canonical instance so
+ * that keys and values repeated within and across resources (e.g.
+ * <code>timeout</code>, <code>true</code>, host names) are held in memory
+ * only once. Each {@link PropertyResourceRegistry} owns its own pool, and
+ * canonical instances are weakly referenced so that they are reclaimed once
+ * no resource held by the registry refers to them.
+ */
+final class PropertyStringPool implements UnaryOperator<String> {
+
+    /* Object header, hash, flags and array reference with compressed oops */
+    private static final int STRING_SIZE = 24;
+    /* Array header with compressed oops */
+    private static final int ARRAY_HEADER_SIZE = 16;
+
+    private final Map<String, WeakReference<String>> canonical = new WeakHashMap<>();
+
+    @Override
+    public synchronized String apply(String value) {
+        final WeakReference<String> reference = canonical.get(value);
+        final String existing = reference != null ? reference.get() : null;
+
+        if (existing != null) {
+            return existing;
+        }
+
+        canonical.put(value, new WeakReference<>(value));
+        return value;
+    }
+
+    synchronized int size() {
+        return canonical.size();
+    }
+
+    /*
+     * Count the references to each distinct string instance among the keys
+     * and values of the given snapshots. An instance referenced more than
+     * once is being shared in place of an equal copy.
+     */
+    static Map<String, Integer> references(Iterable<PropertySnapshot> snapshots) {
+        final Map<String, Integer> references = new IdentityHashMap<>();
+
+        for (PropertySnapshot snapshot : snapshots) {
+            snapshot.forEach((key, value) -> {
+                references.merge(key, 1, Integer::sum);
+                references.merge(value, 1, Integer::sum);
+            });
+        }
+
+        return references;
+    }
+
+    /*
+     * Approximate retained size of a string, assuming compact strings are
+     * enabled (one byte per character when all characters are Latin-1).
+     */
+    static long sizeOf(String value) {
+        final int length = value.length();
+        int bytesPerChar = 1;
+
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) > 0xFF) {
+                bytesPerChar = 2;
+                break;
+            }
+        }
+
+        return STRING_SIZE + align(ARRAY_HEADER_SIZE + (long) length * bytesPerChar);
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Snapshot of the system properties that injection points may use as
+ * overrides, so that lookups do not contend on the synchronized
+ * {@link System#getProperties()} shared with the rest of the JVM. Only the
+ * names that have been requested are held. A name is read from the system
+ * properties when it is first requested and again each time the overlay is
+ * refreshed. Each name is published together with its value (or the absence
+ * of one) in a single map entry, so lookups do not lock and never observe a
+ * name without its value.
+ */
+final class PropertySystemOverlay {
+
+    /* Marks a requested name that has no system property value */
+    private static final String MISSING = new String();
+
+    private final Map<String, String> values = new ConcurrentHashMap<>();
+    private volatile long generation;
+
+    String get(String name) {
+        String value = values.get(name);
+
+        if (value == null) {
+            value = values.computeIfAbsent(name, PropertySystemOverlay::read);
+        }
+
+        return value != MISSING ? value : null;
+    }
+
+    /*
+     * Read the current value of each requested name from the system
+     * properties, returning the names whose values have changed.
+     */
+    synchronized List<String> refresh() {
+        final List<String> changed = new ArrayList<>();
+
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            final String previous = entry.getValue();
+            final String value = read(entry.getKey());
+
+            if (value == MISSING || previous == MISSING ? value != previous : !value.equals(previous)) {
+                values.put(entry.getKey(), value);
+                changed.add(entry.getKey());
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            generation++;
+        }
+
+        return changed;
+    }
+
+    /*
+     * Incremented by each refresh that changes a value, allowing results
+     * derived from the values to be discarded.
+     */
+    long generation() {
+        return generation;
+    }
+
+    int size() {
+        return values.size();
+    }
+
+    private static String read(String name) {
+        final String value = System.getProperty(name);
+        return value != null ? value : MISSING;
+    }
+}
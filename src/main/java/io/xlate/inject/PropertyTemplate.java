@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A property value parsed into its literal segments and the environment
+ * variable references (<code>${env.NAME}</code>) between them. Templates are
+ * compiled once per distinct value and resolved by summing the segment
+ * lengths and appending them to a single pre-sized buffer.
+ */
+final class PropertyTemplate {
+
+    static final int MAX_TEMPLATES = 1024;
+    static final Pattern ENV_REFERENCE = Pattern.compile("\\$\\{env\\.([_a-zA-Z0-9]+)\\}");
+
+    private static final ConcurrentMap<String, PropertyTemplate> templates = new ConcurrentHashMap<>();
+
+    final String source;
+    /* literals.length == variables.length + 1 */
+    final String[] literals;
+    final String[] variables;
+    final int literalLength;
+
+    private PropertyTemplate(String source, String[] literals, String[] variables) {
+        this.source = source;
+        this.literals = literals;
+        this.variables = variables;
+
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Replace the environment references in the value using the given
+     * environment. Values without a reference are returned as-is.
+     */
+    static String resolve(String value, Map<String, String> environment) {
+        if (value.indexOf("${") < 0) {
+            return value;
+        }
+        return of(value).resolve(environment);
+    }
+
+    static PropertyTemplate of(String value) {
+        PropertyTemplate template = templates.get(value);
+
+        if (template == null) {
+            template = compile(value);
+
+            /*
+             * Values normally come from a bounded set of resources; beyond
+             * MAX_TEMPLATES, templates are compiled per call.
+             */
+            if (templates.size() < MAX_TEMPLATES) {
+                final PropertyTemplate existing = templates.putIfAbsent(value, template);
+                template = existing != null ? existing : template;
+            }
+        }
+
+        return template;
+    }
+
+    static PropertyTemplate compile(String value) {
+        final Matcher m = ENV_REFERENCE.matcher(value);
+        final List<String> literals = new ArrayList<>();
+        final List<String> variables = new ArrayList<>();
+        int start = 0;
+
+        while (m.find()) {
+            literals.add(value.substring(start, m.start()));
+            variables.add(m.group(1));
+            start = m.end();
+        }
+
+        literals.add(value.substring(start));
+
+        return new PropertyTemplate(value,
+                                    literals.toArray(new String[literals.size()]),
+                                    variables.toArray(new String[variables.size()]));
+    }
+
+    String resolve(Map<String, String> environment) {
+        final int count = variables.length;
+
+        if (count == 0) {
+            return source;
+        }
+
+        final String[] values = new String[count];
+        int length = literalLength;
+
+        for (int i = 0; i < count; i++) {
+            final String variableValue = environment.get(variables[i]);
+            values[i] = variableValue;
+
+            if (variableValue != null) {
+                length += variableValue.length();
+            }
+        }
+
+        final StringBuilder result = new StringBuilder(length);
+
+        for (int i = 0; i < count; i++) {
+            result.append(literals[i]);
+
+            if (values[i] != null) {
+                result.append(values[i]);
+            }
+        }
+
+        return result.append(literals[count]).toString();
+    }
+
+    static int cached() {
+        return templates.size();
+    }
+}
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import java.util.function.Supplier;
+
+/**
+ * A live handle to the converted value of a property. Inject with the
+ * {@link Property} qualifier, e.g.
+ *
+ * <pre>
+ * &#64;Inject
+ * &#64;Property(defaultValue = "10")
+ * PropertyValue&lt;Integer&gt; poolSize;
+ * </pre>
+ *
+ * The value is converted when the handle is created and again each time the
+ * resource containing the property is reloaded (see
+ * {@link PropertyResource#refreshInterval()} and
+ * {@link PropertyResource#watch()}). Calls to {@link #get()} simply return the
+ * most recently converted value, making the handle suitable for use on
+ * frequently executed code paths, including within beans having a scope longer
+ * than the resource's lifetime.
+ *
+ * Supported value types are the same as those for direct injection using
+ * {@link Property}, in their boxed form.
+ *
+ * @param <T> the type of the property value
+ */
+public interface PropertyValue<T> extends Supplier<T> {
+
+    /**
+     * Retrieve the current value of the property.
+     *
+     * @return the current value, or null if the property is not set and has no
+     *         default value
+     */
+    @Override
+    T get();
+}
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import java.util.concurrent.Callable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+class PropertyValueHandle<T> implements PropertyValue<T> {
+
+    private static final Logger logger = Logger.getLogger(PropertyValueHandle.class.getName());
+
+    private final Callable<T> resolver;
+    private volatile T value;
+
+    PropertyValueHandle(Callable<T> resolver) {
+        this.resolver = resolver;
+    }
+
+    @Override
+    public T get() {
+        return value;
+    }
+
+    void load() throws Exception {
+        value = resolver.call();
+    }
+
+    /*
+     * Called when the backing resource is reloaded. A value that can no longer
+     * be resolved or converted is logged and the previous value retained.
+     */
+    void update() {
+        try {
+            load();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to update property value", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(value);
+    }
+}
@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.InvalidPropertiesFormatException;
+import java.util.function.BiConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streaming reader for resources in the XML format of
+ * {@link java.util.Properties#loadFromXML}. Entries are passed to the caller
+ * as they are read rather than building a document in memory. Documents are
+ * validated using the same rules as {@link java.util.Properties}: the
+ * properties DOCTYPE is required, an internal DTD subset is not allowed, and
+ * the root element may contain an optional comment followed by entries, each
+ * having a key.
+ */
+final class PropertyXmlReader {
+
+    static final String PROPS_DTD_URI = "http://java.sun.com/dtd/properties.dtd";
+    static final String ELEMENT_ROOT = "properties";
+    static final String ELEMENT_COMMENT = "comment";
+    static final String ELEMENT_ENTRY = "entry";
+    static final String ATTR_KEY = "key";
+    /* Compared using String#contains, consistent with java.util.Properties */
+    static final String ALLOWED_ELEMENTS = "comment, entry";
+
+    private static final Pattern DOCTYPE = Pattern.compile("<!DOCTYPE\\s+([^\\s\\[>]+)"
+            + "(?:\\s+(?:SYSTEM|PUBLIC\\s+(?:\"[^\"]*\"|'[^']*'))\\s+(?:\"([^\"]*)\"|'([^']*)'))?"
+            + "\\s*(\\[)?");
+
+    private static final XMLInputFactory factory = newFactory();
+
+    private PropertyXmlReader() {
+    }
+
+    static XMLInputFactory newFactory() {
+        XMLInputFactory result = XMLInputFactory.newFactory();
+        result.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+        result.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        result.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.TRUE);
+        result.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        result.setXMLResolver((publicId, systemId, baseUri, namespace) -> {
+            if (PROPS_DTD_URI.equals(systemId)) {
+                // The properties DTD is known, no need to retrieve it
+                return new ByteArrayInputStream(new byte[0]);
+            }
+            throw new XMLStreamException("Invalid system identifier: " + systemId);
+        });
+        return result;
+    }
+
+    static void read(InputStream stream, BiConsumer<String, String> consumer) throws IOException {
+        try {
+            final XMLStreamReader reader = factory.createXMLStreamReader(stream);
+
+            try {
+                read(reader, consumer);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new InvalidPropertiesFormatException(e);
+        }
+    }
+
+    static void read(XMLStreamReader reader, BiConsumer<String, String> consumer) throws XMLStreamException {
+        final StringBuilder buffer = new StringBuilder();
+        String rootElement = null;
+        boolean sawRoot = false;
+        boolean sawComment = false;
+        boolean validEntry = false;
+        String key = null;
+
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+            case XMLStreamConstants.DTD:
+                rootElement = doctype(reader.getText());
+                break;
+
+            case XMLStreamConstants.START_ELEMENT: {
+                final String name = name(reader);
+
+                if (sawRoot) {
+                    if (!ALLOWED_ELEMENTS.contains(name)) {
+                        throw new XMLStreamException("Element type \"" + name + "\" must be declared.", reader.getLocation());
+                    }
+                } else if (rootElement == null) {
+                    throw new XMLStreamException("An XML properties document must contain"
+                            + " the DOCTYPE declaration as defined by java.util.Properties.", reader.getLocation());
+                } else if (!rootElement.equals(name)) {
+                    throw new XMLStreamException("Document root element \"" + name
+                            + "\", must match DOCTYPE root \"" + rootElement + "\"", reader.getLocation());
+                } else {
+                    sawRoot = true;
+                }
+
+                if (ELEMENT_ENTRY.equals(name)) {
+                    validEntry = true;
+                    key = reader.getAttributeValue(null, ATTR_KEY);
+
+                    if (key == null) {
+                        throw new XMLStreamException("Attribute \"key\" is required and "
+                                + "must be specified for element type \"entry\"", reader.getLocation());
+                    }
+                } else if (ELEMENT_COMMENT.equals(name)) {
+                    if (sawComment) {
+                        throw new XMLStreamException("Only one comment element may be allowed. "
+                                + "The content of element type \"properties\" must match \"(comment?,entry*)\"",
+                                                     reader.getLocation());
+                    }
+                    sawComment = true;
+                }
+                break;
+            }
+
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                if (validEntry) {
+                    buffer.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                }
+                break;
+
+            case XMLStreamConstants.END_ELEMENT: {
+                final String name = name(reader);
+
+                if (!ALLOWED_ELEMENTS.contains(name) && !ELEMENT_ROOT.equals(name)) {
+                    throw new XMLStreamException("Element: " + name
+                            + " is invalid, must match  \"(comment?,entry*)\".", reader.getLocation());
+                }
+
+                if (validEntry) {
+                    consumer.accept(key, buffer.toString());
+                    buffer.setLength(0);
+                    validEntry = false;
+                }
+                break;
+            }
+
+            default:
+                break;
+            }
+        }
+    }
+
+    /*
+     * Validates the DOCTYPE declaration and returns the declared root element.
+     */
+    static String doctype(String declaration) throws XMLStreamException {
+        final Matcher matcher = DOCTYPE.matcher(declaration);
+
+        if (!matcher.lookingAt()) {
+            throw new XMLStreamException("An XML properties document must contain"
+                    + " the DOCTYPE declaration as defined by java.util.Properties.");
+        }
+
+        final String name = matcher.group(1);
+        final String systemId = matcher.group(2) != null ? matcher.group(2) : matcher.group(3);
+
+        if (!ELEMENT_ROOT.equals(name) || !PROPS_DTD_URI.equals(systemId)) {
+            throw new XMLStreamException("An XML properties document must contain"
+                    + " the DOCTYPE declaration as defined by java.util.Properties.");
+        }
+
+        if (matcher.group(4) != null) {
+            throw new XMLStreamException("Internal DTD subset is not allowed. "
+                    + "The Properties XML document must have the following DOCTYPE declaration: \n"
+                    + "<!DOCTYPE properties SYSTEM \"" + PROPS_DTD_URI + "\">");
+        }
+
+        return name;
+    }
+
+    private static String name(XMLStreamReader reader) {
+        final String prefix = reader.getPrefix();
+        final String localName = reader.getLocalName();
+        return prefix == null || prefix.isEmpty() ? localName : prefix + ':' + localName;
+    }
+}
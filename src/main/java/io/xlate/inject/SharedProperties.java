@@ -0,0 +1,362 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * {@link Properties} that delegate to a shared instance which must never be
+ * modified. Depending on the access, writes either fail with an
+ * {@link UnsupportedOperationException} or cause the shared properties to be
+ * copied, after which all operations use the private copy. The state inherited
+ * from {@link Properties} is not used.
+ */
+final class SharedProperties extends Properties {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Properties source;
+    private final transient boolean readOnly;
+    private transient volatile Properties target;
+
+    private SharedProperties(Properties source, boolean readOnly) {
+        this.source = source;
+        this.readOnly = readOnly;
+        this.target = source;
+    }
+
+    static SharedProperties readOnly(Properties source) {
+        return new SharedProperties(source, true);
+    }
+
+    static SharedProperties copyOnWrite(Properties source) {
+        return new SharedProperties(source, false);
+    }
+
+    boolean isCopied() {
+        return target != source;
+    }
+
+    private synchronized Properties writable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Properties are read-only");
+        }
+
+        if (target == source) {
+            Properties copy = new Properties();
+            copy.putAll(source);
+            target = copy;
+        }
+
+        return target;
+    }
+
+    /* Serialized as a plain copy, independent of the shared instance */
+    private Object writeReplace() {
+        Properties copy = new Properties();
+        copy.putAll(target);
+        return copy;
+    }
+
+    @Override
+    public String getProperty(String key) {
+        return target.getProperty(key);
+    }
+
+    @Override
+    public String getProperty(String key, String defaultValue) {
+        return target.getProperty(key, defaultValue);
+    }
+
+    @Override
+    public Object setProperty(String key, String value) {
+        return writable().setProperty(key, value);
+    }
+
+    @Override
+    public int size() {
+        return target.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return target.isEmpty();
+    }
+
+    @Override
+    public Enumeration<Object> keys() {
+        return target.keys();
+    }
+
+    @Override
+    public Enumeration<Object> elements() {
+        return target.elements();
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return target.contains(value);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return target.containsValue(value);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return target.containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        return target.get(key);
+    }
+
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+        return target.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public Object put(Object key, Object value) {
+        return writable().put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        return writable().remove(key);
+    }
+
+    @Override
+    public void putAll(Map<?, ?> t) {
+        writable().putAll(t);
+    }
+
+    @Override
+    public void clear() {
+        writable().clear();
+    }
+
+    @Override
+    public Set<Object> keySet() {
+        return new SetView<Object>() {
+            @Override
+            Object element(Map.Entry<Object, Object> entry) {
+                return entry.getKey();
+            }
+
+            @Override
+            public boolean contains(Object key) {
+                return target.containsKey(key);
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<Object, Object>> entrySet() {
+        return new SetView<Map.Entry<Object, Object>>() {
+            @Override
+            Map.Entry<Object, Object> element(Map.Entry<Object, Object> entry) {
+                return entry;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return target.entrySet().contains(o);
+            }
+        };
+    }
+
+    @Override
+    public Collection<Object> values() {
+        return new AbstractCollection<Object>() {
+            @Override
+            public Iterator<Object> iterator() {
+                return new ViewIterator<Object>() {
+                    @Override
+                    Object element(Map.Entry<Object, Object> entry) {
+                        return entry.getValue();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return target.size();
+            }
+        };
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super Object, ? super Object> action) {
+        target.forEach(action);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super Object, ? super Object, ?> function) {
+        writable().replaceAll(function);
+    }
+
+    @Override
+    public Object putIfAbsent(Object key, Object value) {
+        return writable().putIfAbsent(key, value);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        return writable().remove(key, value);
+    }
+
+    @Override
+    public boolean replace(Object key, Object oldValue, Object newValue) {
+        return writable().replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public Object replace(Object key, Object value) {
+        return writable().replace(key, value);
+    }
+
+    @Override
+    public Object computeIfAbsent(Object key, Function<? super Object, ?> mappingFunction) {
+        return writable().computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public Object computeIfPresent(Object key, BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+        return writable().computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public Object compute(Object key, BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+        return writable().compute(key, remappingFunction);
+    }
+
+    @Override
+    public Object merge(Object key, Object value, BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+        return writable().merge(key, value, remappingFunction);
+    }
+
+    /**
+     * Returns a modifiable copy of these properties.
+     */
+    @Override
+    public synchronized Object clone() {
+        Properties copy = new Properties();
+        copy.putAll(target);
+        return copy;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || target.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return target.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return target.toString();
+    }
+
+    private abstract class SetView<E> extends AbstractSet<E> {
+        abstract E element(Map.Entry<Object, Object> entry);
+
+        @Override
+        public Iterator<E> iterator() {
+            return new ViewIterator<E>() {
+                @Override
+                E element(Map.Entry<Object, Object> entry) {
+                    return SetView.this.element(entry);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return target.size();
+        }
+    }
+
+    /*
+     * Iterates over the properties in use when the iterator was created. Removing
+     * an element or setting the value of an entry obtained from the shared
+     * properties is applied to the copy instead.
+     */
+    private abstract class ViewIterator<E> implements Iterator<E> {
+        private final Properties properties = target;
+        private final Iterator<Map.Entry<Object, Object>> delegate = properties.entrySet().iterator();
+        private Object lastKey;
+
+        abstract E element(Map.Entry<Object, Object> entry);
+
+        @Override
+        public boolean hasNext() {
+            return delegate.hasNext();
+        }
+
+        @Override
+        public E next() {
+            final Map.Entry<Object, Object> entry = delegate.next();
+            lastKey = entry.getKey();
+            return element(properties != source ? entry : new ViewEntry(entry));
+        }
+
+        @Override
+        public void remove() {
+            if (lastKey == null) {
+                throw new IllegalStateException();
+            }
+
+            if (properties != source) {
+                delegate.remove();
+            } else {
+                writable().remove(lastKey);
+            }
+
+            lastKey = null;
+        }
+    }
+
+    private final class ViewEntry extends AbstractMap.SimpleImmutableEntry<Object, Object> {
+        private static final long serialVersionUID = 1L;
+
+        ViewEntry(Map.Entry<Object, Object> entry) {
+            super(entry);
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            return writable().put(getKey(), value);
+        }
+    }
+}
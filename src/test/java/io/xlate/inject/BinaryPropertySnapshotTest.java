@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.InvalidPropertiesFormatException;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitPlatform.class)
+public class BinaryPropertySnapshotTest {
+
+    static byte[] write(PropertySnapshot snapshot) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryPropertySnapshot.write(snapshot, out);
+        return out.toByteArray();
+    }
+
+    static PropertySnapshot snapshot(String... keyValues) {
+        PropertySnapshot.Builder builder = new PropertySnapshot.Builder(String::intern);
+
+        for (int i = 0; i < keyValues.length; i += 2) {
+            builder.put(keyValues[i], keyValues[i + 1]);
+        }
+
+        return builder.build();
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        PropertySnapshot.Builder builder = new PropertySnapshot.Builder(String::intern);
+        Properties expected = new Properties();
+
+        for (int i = 0; i < 10_000; i++) {
+            builder.put("message." + i, "Message number " + i + " é€😀");
+            expected.setProperty("message." + i, "Message number " + i + " é€😀");
+        }
+
+        BinaryPropertySnapshot snapshot = BinaryPropertySnapshot.of(ByteBuffer.wrap(write(builder.build())));
+
+        assertEquals(10_000, snapshot.size());
+        assertEquals("Message number 1234 é€😀", snapshot.get("message.1234"));
+        assertEquals("Message number 0 é€😀", snapshot.get(new String("message.0")));
+        assertNull(snapshot.get("message.10000"));
+        assertEquals("default", snapshot.get("missing", "default"));
+        assertEquals(expected, snapshot.toProperties());
+    }
+
+    @Test
+    public void testNonAsciiKeys() throws IOException {
+        BinaryPropertySnapshot snapshot = BinaryPropertySnapshot.of(ByteBuffer.wrap(write(snapshot("café", "1", "cafe", "2", "", "3"))));
+
+        assertEquals("1", snapshot.get("café"));
+        assertEquals("2", snapshot.get("cafe"));
+        assertEquals("3", snapshot.get(""));
+        assertNull(snapshot.get("cafè"));
+    }
+
+    @Test
+    public void testCollidingKeys() throws IOException {
+        // "Aa" and "BB" share a hash code
+        BinaryPropertySnapshot snapshot = BinaryPropertySnapshot.of(ByteBuffer.wrap(write(snapshot("Aa", "1", "BB", "2"))));
+
+        assertEquals("1", snapshot.get("Aa"));
+        assertEquals("2", snapshot.get("BB"));
+        assertNull(snapshot.get("C#"));
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        BinaryPropertySnapshot snapshot = BinaryPropertySnapshot.of(ByteBuffer.wrap(write(PropertySnapshot.EMPTY)));
+        assertTrue(snapshot.isEmpty());
+        assertNull(snapshot.get("key"));
+    }
+
+    @Test
+    public void testMappedFile(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("resource.bin");
+
+        try (OutputStream out = Files.newOutputStream(file)) {
+            BinaryPropertySnapshot.write(snapshot("key", "value", "other", "€"), out);
+        }
+
+        BinaryPropertySnapshot snapshot = BinaryPropertySnapshot.map(file);
+
+        assertEquals(2, snapshot.size());
+        assertEquals("value", snapshot.get("key"));
+        assertEquals("€", snapshot.get("other"));
+        assertEquals(0, snapshot.weight());
+    }
+
+    @Test
+    public void testInvalidMagic() {
+        assertThrows(InvalidPropertiesFormatException.class, () -> BinaryPropertySnapshot.of(ByteBuffer.wrap("key=value".getBytes())));
+    }
+
+    @Test
+    public void testUnsupportedVersion() throws IOException {
+        byte[] content = write(snapshot("key", "value"));
+        ByteBuffer.wrap(content).putInt(4, BinaryPropertySnapshot.VERSION + 1);
+        assertThrows(InvalidPropertiesFormatException.class, () -> BinaryPropertySnapshot.of(ByteBuffer.wrap(content)));
+    }
+
+    @Test
+    public void testTruncated() throws IOException {
+        byte[] content = write(snapshot("key", "value"));
+        ByteBuffer buffer = ByteBuffer.wrap(content, 0, content.length - 1).slice();
+        assertThrows(InvalidPropertiesFormatException.class, () -> BinaryPropertySnapshot.of(buffer));
+    }
+
+    @Test
+    public void testChecksumMismatch() throws IOException {
+        byte[] content = write(snapshot("key", "value"));
+        content[BinaryPropertySnapshot.HEADER_SIZE] ^= 1;
+        assertThrows(InvalidPropertiesFormatException.class, () -> BinaryPropertySnapshot.of(ByteBuffer.wrap(content)));
+    }
+
+    @Test
+    public void testDataChecksumMismatchOnRead() throws IOException {
+        byte[] content = write(snapshot("key", "value"));
+        content[content.length - 1] ^= 1;
+        BinaryPropertySnapshot snapshot = BinaryPropertySnapshot.of(ByteBuffer.wrap(content));
+
+        assertNull(snapshot.get("missing"));
+        assertThrows(IllegalStateException.class, () -> snapshot.get("key"));
+    }
+
+    @Test
+    public void testDataVerifiedByBlock() throws IOException {
+        PropertySnapshot.Builder builder = new PropertySnapshot.Builder(String::intern);
+
+        for (int i = 0; i < 1_000; i++) {
+            builder.put("message." + i, "Message number " + i);
+        }
+
+        byte[] content = write(builder.build());
+        assertTrue(content.length > BinaryPropertySnapshot.BLOCK_SIZE * 4);
+        content[content.length - 1] ^= 1;
+        BinaryPropertySnapshot snapshot = BinaryPropertySnapshot.of(ByteBuffer.wrap(content));
+        int failed = 0;
+
+        for (int i = 0; i < 1_000; i++) {
+            try {
+                assertEquals("Message number " + i, snapshot.get("message." + i));
+            } catch (IllegalStateException e) {
+                failed++;
+            }
+        }
+
+        // Only the records in the last block are unreadable
+        assertTrue(failed > 0);
+        assertTrue(failed < 1_000 / 4);
+    }
+
+    @Test
+    public void testValuesDecodedOnce() throws IOException {
+        BinaryPropertySnapshot snapshot = BinaryPropertySnapshot.of(ByteBuffer.wrap(write(snapshot("key", "value", "café", "crème"))));
+
+        assertSame(snapshot.get("key"), snapshot.get(new String("key")));
+        assertSame(snapshot.get("café"), snapshot.get("café"));
+        assertEquals("crème", snapshot.get("café"));
+    }
+
+    @Test
+    public void testSupplementaryKeys() throws IOException {
+        BinaryPropertySnapshot snapshot = BinaryPropertySnapshot.of(ByteBuffer.wrap(write(snapshot("😀", "1", "a😀b", "2", "€", "3"))));
+
+        assertEquals("1", snapshot.get("😀"));
+        assertEquals("2", snapshot.get("a😀b"));
+        assertEquals("3", snapshot.get("€"));
+        assertNull(snapshot.get("😁"));
+        assertNull(snapshot.get("a😀"));
+        assertNull(snapshot.get("\uD83D"));
+    }
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitPlatform.class)
+public class MappedPropertySnapshotTest {
+
+    @Test
+    public void testLargeFile(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("large.properties");
+        Properties expected = new Properties();
+
+        for (int i = 0; i < 20_000; i++) {
+            expected.setProperty("message." + i, "Message number " + i + " é");
+        }
+
+        try (OutputStream out = Files.newOutputStream(file)) {
+            expected.store(out, null);
+        }
+
+        MappedPropertySnapshot snapshot = MappedPropertySnapshot.map(file);
+
+        assertEquals(20_000, snapshot.size());
+        assertEquals("Message number 12345 é", snapshot.get("message.12345"));
+        assertEquals("Message number 0 é", snapshot.get(new String("message.0")));
+        assertNull(snapshot.get("message.20000"));
+        assertEquals("default", snapshot.get("missing", "default"));
+        assertEquals(expected, snapshot.toProperties());
+        assertTrue(snapshot.weight() < Files.size(file) / 2);
+    }
+
+    @Test
+    public void testLastDuplicateKeyWins(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("duplicates.properties");
+        Files.write(file, "key=1\nother=x\nkey\\\n  =2\n  key : 3".getBytes(StandardCharsets.ISO_8859_1));
+
+        MappedPropertySnapshot snapshot = MappedPropertySnapshot.map(file);
+
+        assertEquals(2, snapshot.size());
+        assertEquals("3", snapshot.get("key"));
+        Map<String, String> entries = new HashMap<>();
+        snapshot.forEach(entries::put);
+        assertEquals(2, entries.size());
+        assertEquals("3", entries.get("key"));
+    }
+
+    @Test
+    public void testCollidingKeys(@TempDir Path directory) throws IOException {
+        // "Aa" and "BB" share a hash code
+        Path file = directory.resolve("colliding.properties");
+        Files.write(file, "Aa=1\nBB=2".getBytes(StandardCharsets.ISO_8859_1));
+
+        MappedPropertySnapshot snapshot = MappedPropertySnapshot.map(file);
+
+        assertEquals("1", snapshot.get("Aa"));
+        assertEquals("2", snapshot.get("BB"));
+        assertNull(snapshot.get("C#"));
+    }
+
+    @Test
+    public void testEmptyFile(@TempDir Path directory) throws IOException {
+        Path file = Files.createFile(directory.resolve("empty.properties"));
+        MappedPropertySnapshot snapshot = MappedPropertySnapshot.map(file);
+        assertTrue(snapshot.isEmpty());
+        assertNull(snapshot.get("key"));
+    }
+
+    @Test
+    public void testMissingFile(@TempDir Path directory) {
+        assertThrows(NoSuchFileException.class, () -> MappedPropertySnapshot.map(directory.resolve("missing.properties")));
+    }
+}
@@ -17,8 +17,12 @@
 package io.xlate.inject;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.FileNotFoundException;
@@ -28,6 +32,7 @@ import java.lang.reflect.Member;
 import java.net.URL;
 import java.util.Properties;
 
+import javax.enterprise.inject.InjectionException;
 import javax.enterprise.inject.spi.AnnotatedParameter;
 import javax.enterprise.inject.spi.Bean;
 import javax.enterprise.inject.spi.InjectionPoint;
@@ -324,4 +329,61 @@ public class PropertyFactoryTest {
         assertEquals(expected, output);
     }
 
+
+    @Test
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void testPlanResolvedOnce() throws Exception {
+        Property property = this.mockProperty("",
+                                              "",
+                                              PropertyResourceFormat.PROPERTIES,
+                                              "",
+                                              "fallback");
+        when(property.pattern()).thenReturn("#,##0");
+        InjectionPoint point = this.mockInjectionPoint(property, Member.class, "field1", -1);
+        Class declaringClass = getClass();
+        when(point.getMember().getDeclaringClass()).thenReturn(declaringClass);
+
+        PropertyInjectionPlan plan = bean.getPlan(point);
+
+        assertEquals("field1", plan.propertyName);
+        assertEquals(getClass().getName() + ".field1", plan.systemProperty);
+        assertEquals("fallback", plan.defaultValue);
+        assertEquals("#,##0", plan.pattern);
+        assertEquals("classpath:io/xlate/inject/PropertyFactoryTest.properties", plan.resourceId());
+        assertSame(plan, bean.getPlan(point));
+        verify(point.getAnnotated(), times(1)).getAnnotation(Property.class);
+    }
+
+    @Test
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void testResourcePlanResolvedOnce() throws Exception {
+        InjectionPoint point = this.mockInjectionPoint(null, Member.class, "props", -1);
+        Class declaringClass = getClass();
+        when(point.getMember().getDeclaringClass()).thenReturn(declaringClass);
+        when(defaultPropertyResource.value()).thenReturn("io/xlate/inject/test/test.properties");
+        when(point.getAnnotated().getAnnotation(PropertyResource.class)).thenReturn(defaultPropertyResource);
+
+        PropertyInjectionPlan plan = bean.getResourcePlan(point);
+
+        assertSame(defaultPropertyResource, plan.resource);
+        assertEquals("classpath:io/xlate/inject/test/test.properties", plan.resourceId());
+        assertSame(plan, bean.getResourcePlan(point));
+        verify(point.getAnnotated(), times(1)).getAnnotation(PropertyResource.class);
+    }
+
+    @Test
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void testPlanNotCachedOnInvalidLocation() {
+        Property property = this.mockProperty("name",
+                                              "invalid:\\location",
+                                              PropertyResourceFormat.PROPERTIES,
+                                              "",
+                                              "");
+        InjectionPoint point = this.mockInjectionPoint(property, Member.class, "field1", -1);
+        Class declaringClass = getClass();
+        when(point.getMember().getDeclaringClass()).thenReturn(declaringClass);
+
+        assertThrows(InjectionException.class, () -> bean.getPlan(point));
+        assertTrue(bean.plans.isEmpty());
+    }
 }
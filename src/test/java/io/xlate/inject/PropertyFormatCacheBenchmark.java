@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares parsing with a format compiled on every call (the previous
+ * behavior) against parsing with a format borrowed from
+ * {@link PropertyFormatCache}, under contention. Run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=io.xlate.inject.PropertyFormatCacheBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class PropertyFormatCacheBenchmark {
+
+    static final String DECIMAL_PATTERN = "#,##0.00";
+    static final String DECIMAL_VALUE = "1,234,567.89";
+    static final String DATE_PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
+    static final String DATE_VALUE = "2020-10-18T12:34:56.789-0400";
+
+    @Benchmark
+    public BigDecimal decimalUncached() throws ParseException {
+        DecimalFormat format = new DecimalFormat(DECIMAL_PATTERN);
+        format.setParseBigDecimal(true);
+        return (BigDecimal) format.parse(DECIMAL_VALUE);
+    }
+
+    @Benchmark
+    public BigDecimal decimalCached() throws ParseException {
+        return PropertyConverters.parseBigDecimal(DECIMAL_VALUE, DECIMAL_PATTERN);
+    }
+
+    @Benchmark
+    public Date dateUncached() throws ParseException {
+        return new SimpleDateFormat(DATE_PATTERN).parse(DATE_VALUE);
+    }
+
+    @Benchmark
+    public Date dateCached() throws ParseException {
+        return PropertyConverters.parseDate(DATE_VALUE, DATE_PATTERN);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PropertyFormatCacheBenchmark.class.getSimpleName()).build()).run();
+    }
+}
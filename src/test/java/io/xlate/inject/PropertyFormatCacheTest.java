@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitPlatform.class)
+public class PropertyFormatCacheTest {
+
+    static PropertyFormatCache<DecimalFormat> counting(AtomicInteger created) {
+        return new PropertyFormatCache<>(false, (pattern, locale, zone) -> {
+            created.incrementAndGet();
+            DecimalFormat format = new DecimalFormat(pattern);
+            format.setParseBigDecimal(true);
+            return format;
+        });
+    }
+
+    @Test
+    public void testFormatReused() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        PropertyFormatCache<DecimalFormat> cache = counting(created);
+        List<DecimalFormat> used = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            cache.parse("#,##0.00", format -> {
+                used.add(format);
+                return format.parse("1,234.50");
+            });
+        }
+
+        assertEquals(1, created.get());
+        assertSame(used.get(0), used.get(9));
+        assertEquals(1, cache.patterns());
+        assertEquals(1, cache.idle("#,##0.00"));
+    }
+
+    @Test
+    public void testNestedBorrowGetsDistinctFormat() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        PropertyFormatCache<DecimalFormat> cache = counting(created);
+
+        cache.parse("0.0", outer -> cache.parse("0.0", inner -> {
+            assertNotSame(outer, inner);
+            return null;
+        }));
+
+        assertEquals(2, created.get());
+        assertEquals(2, cache.idle("0.0"));
+    }
+
+    @Test
+    public void testIdleFormatsBounded() throws Exception {
+        PropertyFormatCache<DecimalFormat> cache = counting(new AtomicInteger());
+        nest(cache, PropertyFormatCache.MAX_IDLE + 3);
+        assertEquals(PropertyFormatCache.MAX_IDLE, cache.idle("0"));
+    }
+
+    static Object nest(PropertyFormatCache<DecimalFormat> cache, int depth) throws ParseException {
+        return cache.parse("0", format -> depth > 1 ? nest(cache, depth - 1) : null);
+    }
+
+    @Test
+    public void testPatternsBounded() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        PropertyFormatCache<DecimalFormat> cache = counting(created);
+
+        for (int i = 0; i < PropertyFormatCache.MAX_PATTERNS + 10; i++) {
+            cache.parse("0'-" + i + "'", DecimalFormat::toPattern);
+        }
+
+        assertEquals(PropertyFormatCache.MAX_PATTERNS, cache.patterns());
+        cache.parse("0.00", DecimalFormat::toPattern);
+        cache.parse("0.00", DecimalFormat::toPattern);
+        assertEquals(PropertyFormatCache.MAX_PATTERNS + 12, created.get());
+
+        cache.clear();
+        assertEquals(0, cache.patterns());
+    }
+
+    @Test
+    public void testKeyedByLocale() throws Exception {
+        Locale defaultLocale = Locale.getDefault(Locale.Category.FORMAT);
+
+        try {
+            Locale.setDefault(Locale.Category.FORMAT, Locale.US);
+            BigDecimal us = PropertyFormatCache.DECIMAL.parse("#,##0.00", format -> (BigDecimal) format.parse("1,234.50"));
+            Locale.setDefault(Locale.Category.FORMAT, Locale.GERMANY);
+            BigDecimal de = PropertyFormatCache.DECIMAL.parse("#,##0.00", format -> (BigDecimal) format.parse("1.234,50"));
+
+            assertEquals(new BigDecimal("1234.50"), us);
+            assertEquals(us, de);
+        } finally {
+            Locale.setDefault(Locale.Category.FORMAT, defaultLocale);
+        }
+    }
+
+    @Test
+    public void testParseExceptionReturnsFormat() {
+        PropertyFormatCache<SimpleDateFormat> cache = new PropertyFormatCache<>(true, (pattern, locale, zone) -> new SimpleDateFormat(pattern, locale));
+
+        assertThrows(ParseException.class, () -> cache.parse("yyyy-MM-dd", format -> format.parse("bad")));
+        assertEquals(1, cache.idle("yyyy-MM-dd"));
+    }
+
+    @Test
+    public void testConcurrentParsing() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+
+        for (int t = 0; t < 8; t++) {
+            final int offset = t;
+            tasks.add(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    int day = 1 + (i + offset) % 28;
+                    String value = String.format("2020-02-%02d", day);
+                    Date date = PropertyConverters.parseDate(value, "yyyy-MM-dd");
+                    if (!value.equals(new SimpleDateFormat("yyyy-MM-dd").format(date))) {
+                        return false;
+                    }
+                    BigDecimal amount = PropertyConverters.parseBigDecimal(i + ".5" + offset, "0.00");
+                    if (amount.compareTo(new BigDecimal(i + ".5" + offset)) != 0) {
+                        return false;
+                    }
+                }
+                return true;
+            });
+        }
+
+        try {
+            for (Future<Boolean> result : executor.invokeAll(tasks)) {
+                assertEquals(Boolean.TRUE, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testDateTimeFormatterShared() {
+        DateTimeFormatter first = PropertyFormatCache.dateTimeFormatter("dd.MM.yyyy");
+        assertSame(first, PropertyFormatCache.dateTimeFormatter("dd.MM.yyyy"));
+        assertEquals(LocalDate.of(2020, 10, 18), first.parse("18.10.2020", LocalDate::from));
+    }
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import javax.enterprise.context.Dependent;
+import javax.inject.Inject;
+
+import org.jboss.weld.junit5.WeldInitiator;
+import org.jboss.weld.junit5.WeldJunit5Extension;
+import org.jboss.weld.junit5.WeldSetup;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitPlatform.class)
+@ExtendWith(WeldJunit5Extension.class)
+public class PropertyInjectionExtensionIT {
+
+    @WeldSetup
+    public WeldInitiator weld = WeldInitiator
+        .from(WeldInitiator.createWeld()
+                           .addExtension(new PropertyInjectionExtension(true, 2, true))
+                           .addBeanClass(Settings.class))
+        .build();
+
+    @Dependent
+    public static class Settings {
+        @Inject
+        @Property(resource = @PropertyResource(RESOURCE))
+        int count;
+
+        @Inject
+        @Property(pattern = "#,##0.00", resource = @PropertyResource(RESOURCE))
+        BigDecimal amount;
+
+        @Inject
+        @Property(pattern = "yyyy-MM-dd", resource = @PropertyResource(RESOURCE))
+        Date released;
+
+        @Inject
+        @Property(resource = @PropertyResource(RESOURCE))
+        String missing;
+    }
+
+    static final String RESOURCE = "io/xlate/inject/PropertyInjectionExtensionIT.properties";
+
+    @Inject
+    PropertyResourceRegistry registry;
+
+    @Inject
+    Settings settings;
+
+    @Test
+    public void testValuesConvertedDuringDeployment() {
+        assertEquals(4, registry.convertedValues.size());
+        assertEquals(3, settings.count);
+        assertEquals(new BigDecimal("1234.5"), settings.amount.stripTrailingZeros());
+        assertTrue(settings.released.getTime() > 0);
+        assertNull(settings.missing);
+    }
+}
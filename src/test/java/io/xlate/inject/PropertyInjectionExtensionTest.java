@@ -16,22 +16,50 @@
  ******************************************************************************/
 package io.xlate.inject;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.RETURNS_SELF;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Properties;
+import java.util.function.Function;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 
+import javax.enterprise.context.spi.CreationalContext;
+import javax.enterprise.inject.spi.AfterBeanDiscovery;
+import javax.enterprise.inject.spi.AfterDeploymentValidation;
+import javax.enterprise.inject.spi.Annotated;
 import javax.enterprise.inject.spi.BeanManager;
 import javax.enterprise.inject.spi.BeforeBeanDiscovery;
+import javax.enterprise.inject.spi.DeploymentException;
+import javax.enterprise.inject.spi.InjectionPoint;
+import javax.enterprise.inject.spi.ProcessInjectionPoint;
+import javax.enterprise.inject.spi.configurator.BeanConfigurator;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.platform.runner.JUnitPlatform;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 
 @RunWith(JUnitPlatform.class)
 public class PropertyInjectionExtensionTest {
@@ -88,4 +116,193 @@ public class PropertyInjectionExtensionTest {
         extLogger.removeHandler(handler);
         org.junit.Assert.assertEquals(0, messages.size());
     }
+
+    @Test
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void testAfterBeanDiscoveryAddsRegistryBean() {
+        AfterBeanDiscovery abd = mock(AfterBeanDiscovery.class);
+        BeanConfigurator<Object> configurator = mock(BeanConfigurator.class, RETURNS_SELF);
+        when(abd.addBean()).thenReturn(configurator);
+
+        ext.afterBeanDiscovery(abd);
+
+        ArgumentCaptor<Function> callback = ArgumentCaptor.forClass(Function.class);
+        verify(configurator).createWith(callback.capture());
+        verify(configurator).types(PropertyResourceRegistry.class, Object.class);
+        assertSame(ext.getRegistry(), callback.getValue().apply(mock(CreationalContext.class)));
+    }
+
+    static PropertyManifest.Entry manifestEntry(String name, String type) {
+        PropertyManifest.Entry entry = new PropertyManifest.Entry();
+        entry.beanClass = PropertyProducerBeanTest.class.getName();
+        entry.member = name;
+        entry.name = name;
+        entry.systemProperty = entry.beanClass + '.' + name;
+        entry.type = type;
+        entry.location = "io/xlate/inject/PropertyProducerBeanTest.properties";
+        return entry;
+    }
+
+    static ClassLoader manifestLoader(Path directory, PropertyManifest.Entry... entries) throws IOException {
+        Path manifest = directory.resolve(PropertyManifest.LOCATION);
+        Files.createDirectories(manifest.getParent());
+
+        try (OutputStream output = Files.newOutputStream(manifest)) {
+            PropertyManifest.write(Arrays.asList(entries), output);
+        }
+
+        return new URLClassLoader(new URL[] { directory.toUri().toURL() }, PropertyInjectionExtensionTest.class.getClassLoader());
+    }
+
+    @Test
+    public void testValidateManifestPreloadsResources(@TempDir Path directory) throws IOException {
+        AfterDeploymentValidation adv = mock(AfterDeploymentValidation.class);
+        PropertyManifest.Entry resource = manifestEntry("props", "java.util.Properties");
+        resource.kind = PropertyManifest.Kind.RESOURCE;
+        resource.location = "io/xlate/inject/PropertyResourceProducerBeanTest.properties";
+        PropertyManifest.Entry formatted = manifestEntry("BigDecimalFormatted", "java.math.BigDecimal");
+        formatted.pattern = "#,##0.0#";
+
+        ext.validateManifest(adv, manifestLoader(directory,
+                                                 manifestEntry("testProducePropertyInteger", "int"),
+                                                 formatted,
+                                                 manifestEntry("missingKey", "java.lang.Long"),
+                                                 resource));
+
+        verify(adv, never()).addDeploymentProblem(org.mockito.ArgumentMatchers.any());
+        assertEquals(2, ext.getRegistry().size());
+    }
+
+    @Test
+    public void testValidateManifestReportsProblems(@TempDir Path directory) throws IOException {
+        AfterDeploymentValidation adv = mock(AfterDeploymentValidation.class);
+        PropertyManifest.Entry missing = manifestEntry("props", "java.util.Properties");
+        missing.kind = PropertyManifest.Kind.RESOURCE;
+        missing.location = "io/xlate/inject/Missing.properties";
+        PropertyManifest.Entry unknownClass = manifestEntry("value", "java.lang.String");
+        unknownClass.beanClass = "com.example.Missing";
+
+        ext.validateManifest(adv, manifestLoader(directory,
+                                                 manifestEntry("testProducePropertyIntegerInvalid", "java.lang.Integer"),
+                                                 manifestEntry("testProducePropertyInteger", "int"),
+                                                 missing,
+                                                 unknownClass));
+
+        ArgumentCaptor<Throwable> problems = ArgumentCaptor.forClass(Throwable.class);
+        verify(adv, times(3)).addDeploymentProblem(problems.capture());
+        assertTrue(problems.getAllValues().stream().allMatch(DeploymentException.class::isInstance));
+        // The missing resource is reported once, when preloading, ahead of the values
+        assertTrue(problems.getAllValues().get(0).getMessage().contains("Missing.properties"));
+        assertTrue(problems.getAllValues().get(1).getMessage().contains("testProducePropertyIntegerInvalid"));
+        assertTrue(problems.getAllValues().get(2).getMessage().contains("com.example.Missing"));
+    }
+
+    @Test
+    public void testManifestResourcesPreloadedBeforeDiscovery(@TempDir Path directory) throws IOException {
+        AfterDeploymentValidation adv = mock(AfterDeploymentValidation.class);
+        PropertyManifest.Entry resource = manifestEntry("props", "java.util.Properties");
+        resource.kind = PropertyManifest.Kind.RESOURCE;
+        resource.location = "io/xlate/inject/PropertyResourceProducerBeanTest.properties";
+
+        ext.preloadManifest(manifestLoader(directory, manifestEntry("testProducePropertyInteger", "int"), resource));
+        ext.awaitPreload(adv);
+
+        verify(adv, never()).addDeploymentProblem(org.mockito.ArgumentMatchers.any());
+        assertEquals(2, ext.getRegistry().size());
+    }
+
+    static class PreloadBean {
+        @Property(resource = @PropertyResource("io/xlate/inject/PropertyProducerBeanTest.properties"))
+        String first;
+        @Property(name = "testProducePropertyInteger", resource = @PropertyResource("io/xlate/inject/PropertyProducerBeanTest.properties"))
+        String second;
+        @PropertyResource("io/xlate/inject/PropertyResourceProducerBeanTest.properties")
+        Properties resource;
+        @PropertyResource("io/xlate/inject/Missing.properties")
+        Properties missing;
+        @Property(systemProperty = "java.version", resource = @PropertyResource("io/xlate/inject/Missing.properties"))
+        String overridden;
+        @PropertyResource("invalid:\\location")
+        Properties invalid;
+        @Property(name = "testProducePropertyIntegerInvalid", resource = @PropertyResource("io/xlate/inject/PropertyProducerBeanTest.properties"))
+        Integer invalidInteger;
+    }
+
+    static ProcessInjectionPoint<?, ?> processInjectionPoint(String fieldName) throws NoSuchFieldException {
+        Field field = PreloadBean.class.getDeclaredField(fieldName);
+        InjectionPoint point = mock(InjectionPoint.class);
+        Annotated annotated = mock(Annotated.class);
+        when(point.getMember()).thenReturn(field);
+        when(point.getType()).thenReturn(field.getGenericType());
+        when(point.getAnnotated()).thenReturn(annotated);
+        when(annotated.getAnnotation(Property.class)).thenReturn(field.getAnnotation(Property.class));
+        when(annotated.getAnnotation(PropertyResource.class)).thenReturn(field.getAnnotation(PropertyResource.class));
+        ProcessInjectionPoint<?, ?> event = mock(ProcessInjectionPoint.class);
+        when(event.getInjectionPoint()).thenReturn(point);
+        return event;
+    }
+
+    @Test
+    public void testPreloadDistinctResources() throws Exception {
+        AfterDeploymentValidation adv = mock(AfterDeploymentValidation.class);
+
+        for (String name : Arrays.asList("first", "second", "resource", "overridden")) {
+            ext.processInjectionPoint(processInjectionPoint(name));
+        }
+
+        ext.preload();
+        ext.awaitPreload(adv);
+
+        verify(adv, never()).addDeploymentProblem(org.mockito.ArgumentMatchers.any());
+        assertEquals(2, ext.getRegistry().size());
+    }
+
+    @Test
+    public void testPreloadReportsProblems() throws Exception {
+        AfterDeploymentValidation adv = mock(AfterDeploymentValidation.class);
+        ProcessInjectionPoint<?, ?> invalid = processInjectionPoint("invalid");
+
+        ext.processInjectionPoint(processInjectionPoint("missing"));
+        ext.processInjectionPoint(processInjectionPoint("first"));
+        ext.processInjectionPoint(invalid);
+        ext.preload();
+        ext.awaitPreload(adv);
+
+        verify(invalid).addDefinitionError(org.mockito.ArgumentMatchers.any());
+        ArgumentCaptor<Throwable> problems = ArgumentCaptor.forClass(Throwable.class);
+        verify(adv).addDeploymentProblem(problems.capture());
+        assertTrue(problems.getValue().getMessage().contains("Missing.properties"));
+        assertEquals(1, ext.getRegistry().size());
+    }
+
+    @Test
+    public void testPreloadDisabled() throws Exception {
+        ext = new PropertyInjectionExtension(false, 1, false);
+        AfterDeploymentValidation adv = mock(AfterDeploymentValidation.class);
+
+        ext.processInjectionPoint(processInjectionPoint("missing"));
+        ext.preload();
+        ext.awaitPreload(adv);
+
+        verify(adv, never()).addDeploymentProblem(org.mockito.ArgumentMatchers.any());
+        assertEquals(0, ext.getRegistry().size());
+    }
+
+    @Test
+    public void testEagerConversionReportsInvalidValues() throws Exception {
+        ext = new PropertyInjectionExtension(true, 1, true);
+        AfterDeploymentValidation adv = mock(AfterDeploymentValidation.class);
+
+        ext.processInjectionPoint(processInjectionPoint("second"));
+        ext.processInjectionPoint(processInjectionPoint("invalidInteger"));
+        ext.processInjectionPoint(processInjectionPoint("resource"));
+        ext.preload();
+        ext.awaitPreload(adv);
+        ext.convertValues(adv);
+
+        ArgumentCaptor<Throwable> problems = ArgumentCaptor.forClass(Throwable.class);
+        verify(adv).addDeploymentProblem(problems.capture());
+        assertTrue(problems.getValue() instanceof DeploymentException);
+        assertEquals(1, ext.getRegistry().convertedValues.size());
+    }
 }
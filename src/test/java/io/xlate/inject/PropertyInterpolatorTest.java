@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.InvalidPropertiesFormatException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitPlatform.class)
+public class PropertyInterpolatorTest {
+
+    static final Map<String, String> ENVIRONMENT = Collections.singletonMap("HOME", "/home/user");
+
+    static PropertySnapshot snapshot(String... entries) {
+        Properties source = new Properties();
+        for (int i = 0; i < entries.length; i += 2) {
+            source.setProperty(entries[i], entries[i + 1]);
+        }
+        return PropertySnapshot.of(source);
+    }
+
+    static PropertySnapshot interpolate(PropertySnapshot source) throws InvalidPropertiesFormatException {
+        Map<String, String> system = new HashMap<>();
+        system.put("user.name", "tester");
+        return PropertyInterpolator.interpolate(source, ENVIRONMENT, system::get);
+    }
+
+    @Test
+    public void testWithoutReferencesUnchanged() throws Exception {
+        PropertySnapshot source = snapshot("a", "1", "b", "$ {not} a reference");
+        assertSame(source, interpolate(source));
+    }
+
+    @Test
+    public void testKeySystemAndEnvironmentReferences() throws Exception {
+        PropertySnapshot result = interpolate(snapshot("dir", "${env.HOME}/${sys.user.name}",
+                                                       "file", "${dir}/app.log",
+                                                       "plain", "value"));
+        assertEquals("/home/user/tester", result.get("dir"));
+        assertEquals("/home/user/tester/app.log", result.get("file"));
+        assertEquals("value", result.get("plain"));
+        assertEquals(3, result.size());
+    }
+
+    @Test
+    public void testChainedDefaults() throws Exception {
+        PropertySnapshot result = interpolate(snapshot("b", "second",
+                                                       "first", "${a:${b:fallback}}",
+                                                       "last", "${a:${c:fallback}}",
+                                                       "empty", "[${a}]",
+                                                       "present", "${b:${undefined.reference}}"));
+        assertEquals("second", result.get("first"));
+        assertEquals("fallback", result.get("last"));
+        assertEquals("[]", result.get("empty"));
+        assertEquals("second", result.get("present"));
+    }
+
+    @Test
+    public void testUnterminatedReferenceIsLiteral() throws Exception {
+        assertEquals("x ${a:${b}", interpolate(snapshot("a", "x ${a:${b}")).get("a"));
+    }
+
+    @Test
+    public void testDependenciesResolvedOnce() throws Exception {
+        AtomicInteger lookups = new AtomicInteger();
+        UnaryOperator<String> system = name -> {
+            lookups.incrementAndGet();
+            return "v";
+        };
+
+        PropertySnapshot result = PropertyInterpolator.interpolate(snapshot("base", "${sys.x}",
+                                                                            "a", "${base}1",
+                                                                            "b", "${base}2",
+                                                                            "c", "${a}${b}"),
+                                                                   ENVIRONMENT,
+                                                                   system);
+        assertEquals("v1v2", result.get("c"));
+        assertEquals(1, lookups.get());
+    }
+
+    @Test
+    public void testCycleDetected() {
+        InvalidPropertiesFormatException e = assertThrows(InvalidPropertiesFormatException.class,
+                                                          () -> interpolate(snapshot("a", "${b}", "b", "${c}", "c", "x${a}")));
+        assertTrue(e.getMessage().contains(" -> "), e.getMessage());
+        assertThrows(InvalidPropertiesFormatException.class, () -> interpolate(snapshot("self", "${self:x}")));
+    }
+
+    @Test
+    public void testSnapshotInterpolationMemoized() throws Exception {
+        PropertySnapshot source = snapshot("a", "${b}", "b", "1");
+        PropertySnapshot first = source.interpolated(ENVIRONMENT, System::getProperty);
+
+        assertEquals("1", first.get("a"));
+        assertSame(first, source.interpolated(ENVIRONMENT, System::getProperty));
+        assertEquals("${b}", source.get("a"));
+    }
+}
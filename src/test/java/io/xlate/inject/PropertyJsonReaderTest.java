@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.InvalidPropertiesFormatException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitPlatform.class)
+public class PropertyJsonReaderTest {
+
+    static Map<String, String> read(String json) throws IOException {
+        Map<String, String> result = new LinkedHashMap<>();
+        PropertyJsonReader.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), result::put);
+        return result;
+    }
+
+    @Test
+    public void testNestedObjectsAndArrays() throws IOException {
+        Map<String, String> result = read("{"
+                + "\"name\": \"app\","
+                + "\"db\": {\"hosts\": [\"a\", \"b\"], \"port\": 5432, \"ssl\": true, \"pool\": {\"min\": 1.50}},"
+                + "\"servers\": [{\"id\": 1, \"tags\": [[\"x\"], []]}, {\"id\": 2, \"enabled\": false}],"
+                + "\"after\": \"é\""
+                + "}");
+
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("name", "app");
+        expected.put("db.hosts[0]", "a");
+        expected.put("db.hosts[1]", "b");
+        expected.put("db.port", "5432");
+        expected.put("db.ssl", "true");
+        expected.put("db.pool.min", "1.50");
+        expected.put("servers[0].id", "1");
+        expected.put("servers[0].tags[0][0]", "x");
+        expected.put("servers[1].id", "2");
+        expected.put("servers[1].enabled", "false");
+        expected.put("after", "é");
+
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void testNullAndEmptyValuesSkipped() throws IOException {
+        Map<String, String> result = read("{\"a\": null, \"b\": {}, \"c\": [], \"d\": [null, \"x\"], \"e\": \"\"}");
+        assertEquals(2, result.size());
+        assertEquals("x", result.get("d[1]"));
+        assertEquals("", result.get("e"));
+    }
+
+    @Test
+    public void testRootArray() throws IOException {
+        Map<String, String> result = read("[\"a\", {\"b\": 1}]");
+        assertEquals("a", result.get("[0]"));
+        assertEquals("1", result.get("[1].b"));
+    }
+
+    @Test
+    public void testDeeplyNested() throws IOException {
+        StringBuilder json = new StringBuilder();
+        StringBuilder key = new StringBuilder();
+
+        for (int i = 0; i < 40; i++) {
+            json.append("{\"k").append(i).append("\":");
+            key.append(i > 0 ? "." : "").append('k').append(i);
+        }
+
+        json.append("\"deep\"");
+
+        for (int i = 0; i < 40; i++) {
+            json.append('}');
+        }
+
+        assertEquals("deep", read(json.toString()).get(key.toString()));
+    }
+
+    @Test
+    public void testInvalidDocuments() throws IOException {
+        assertThrows(InvalidPropertiesFormatException.class, () -> read("{\"a\": "));
+        assertThrows(InvalidPropertiesFormatException.class, () -> read("{\"a\" 1}"));
+        assertThrows(InvalidPropertiesFormatException.class, () -> read("\"scalar\""));
+        assertTrue(read("{}").isEmpty());
+    }
+}
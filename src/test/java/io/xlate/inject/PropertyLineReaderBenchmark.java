@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the time taken to parse a resource in properties format into a
+ * {@link PropertySnapshot} using {@link PropertyLineReader} against
+ * {@link Properties#load} followed by {@link PropertySnapshot#of}. String
+ * deduplication is disabled so that only parsing is measured. Run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=io.xlate.inject.PropertyLineReaderBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PropertyLineReaderBenchmark {
+
+    @Param({ "10000", "500000" })
+    int entries;
+
+    byte[] content;
+    PropertyResourceRegistry registry;
+    PropertyResourceRegistry utf8Registry;
+
+    @Setup
+    public void setup() {
+        content = createContent(entries);
+        registry = new PropertyResourceRegistry(Long.MAX_VALUE, Long.MAX_VALUE, 0, 0, false, StandardCharsets.ISO_8859_1);
+        utf8Registry = new PropertyResourceRegistry(Long.MAX_VALUE, Long.MAX_VALUE, 0, 0, false, StandardCharsets.UTF_8);
+    }
+
+    /*
+     * A message catalog with occasional comments, escapes and continuations.
+     */
+    static byte[] createContent(int entries) {
+        StringBuilder result = new StringBuilder(entries * 48);
+
+        for (int i = 0; i < entries; i++) {
+            if (i % 50 == 0) {
+                result.append("# Section ").append(i / 50).append('\n');
+            }
+
+            result.append("catalog.message.").append(i).append(" = The message with number ").append(i);
+
+            if (i % 20 == 0) {
+                result.append(" \\u00e9\\t\\\n    continued");
+            }
+
+            result.append('\n');
+        }
+
+        return result.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    @Benchmark
+    public Properties propertiesLoad() throws IOException {
+        Properties properties = new Properties();
+        properties.load(new ByteArrayInputStream(content));
+        return properties;
+    }
+
+    @Benchmark
+    public PropertySnapshot propertiesLoadSnapshot() throws IOException {
+        return PropertySnapshot.of(propertiesLoad());
+    }
+
+    @Benchmark
+    public PropertySnapshot lineReaderSnapshot() throws IOException {
+        return registry.loadSnapshot(new ByteArrayInputStream(content), PropertyResourceFormat.PROPERTIES);
+    }
+
+    @Benchmark
+    public PropertySnapshot propertiesLoadSnapshotUtf8() throws IOException {
+        Properties properties = new Properties();
+        properties.load(new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8));
+        return PropertySnapshot.of(properties);
+    }
+
+    @Benchmark
+    public PropertySnapshot lineReaderSnapshotUtf8() throws IOException {
+        return utf8Registry.loadSnapshot(new ByteArrayInputStream(content), PropertyResourceFormat.PROPERTIES);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PropertyLineReaderBenchmark.class.getSimpleName()).build()).run();
+    }
+}
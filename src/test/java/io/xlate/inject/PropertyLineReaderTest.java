@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitPlatform.class)
+public class PropertyLineReaderTest {
+
+    static Map<Object, Object> expected(byte[] content) throws IOException {
+        Properties properties = new Properties();
+        properties.load(new ByteArrayInputStream(content));
+        return new HashMap<>(properties);
+    }
+
+    static Map<Object, Object> actual(byte[] content) {
+        PropertyLineReader reader = new PropertyLineReader(ByteBuffer.wrap(content));
+        Map<Object, Object> result = new HashMap<>();
+
+        while (reader.readLine()) {
+            result.put(reader.key(), reader.value());
+        }
+
+        return result;
+    }
+
+    static Map<Object, Object> expectedUtf8(byte[] content) throws IOException {
+        Properties properties = new Properties();
+        properties.load(new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8));
+        return new HashMap<>(properties);
+    }
+
+    static Map<Object, Object> actual(byte[] content, Charset charset) throws IOException {
+        PropertyLineReader reader = PropertyLineReader.of(new ByteArrayInputStream(content), charset);
+        Map<Object, Object> result = new HashMap<>();
+
+        while (reader.readLine()) {
+            result.put(reader.key(), reader.value());
+        }
+
+        return result;
+    }
+
+    static void assertEquivalent(String content) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.ISO_8859_1);
+        assertEquals(expected(bytes), actual(bytes), content);
+        assertEquals(expected(bytes), actual(bytes, StandardCharsets.ISO_8859_1), content);
+    }
+
+    @Test
+    public void testSeparators() throws IOException {
+        assertEquivalent("a=1\nb:2\nc 3\nd\t4\ne = 5\nf : 6\ng   =   7\nh\n i \n=8\n:9\nj==10\nk :=11");
+    }
+
+    @Test
+    public void testCommentsAndBlankLines() throws IOException {
+        assertEquivalent("# comment\n! comment\n\n   \n  # indented comment\na=1 # not a comment\n#b=2\\\nc=3");
+    }
+
+    @Test
+    public void testLineTerminators() throws IOException {
+        assertEquivalent("a=1\r\nb=2\rc=3\n\r\nd=4\r");
+    }
+
+    @Test
+    public void testContinuations() throws IOException {
+        assertEquivalent("a=one\\\n    two\\\r\n\tthree\\\r  four\nb=even\\\\\nc=odd\\\\\\\n  more\nd=end\\");
+        assertEquivalent("\\\n");
+        assertEquivalent("\\\n#comment\na=1");
+        assertEquivalent("key\\\n  =value\n");
+    }
+
+    @Test
+    public void testCommentCharactersOnContinuationLines() throws IOException {
+        assertEquivalent("a=1\\\n#not a comment\nb=2");
+        assertEquivalent("a=1\\\n   !not a comment\\\n  # nor this\n#comment\nc=3");
+        assertEquivalent("#comment\\\n#comment\nd=4\\\n\n#comment");
+    }
+
+    @Test
+    public void testEscapes() throws IOException {
+        assertEquivalent("a\\=b=c\\=d\nk\\ e\\:y=\\t\\n\\r\\f\\x\\\\\nu=\\u0041\\u00e9\\u20AC\n\\#key=value");
+    }
+
+    @Test
+    public void testLatin1() throws IOException {
+        assertEquivalent("café=crème\nÿ= x");
+    }
+
+    @Test
+    public void testMalformedUnicode() {
+        assertThrows(IllegalArgumentException.class, () -> actual("a=\\u12".getBytes(StandardCharsets.ISO_8859_1)));
+        assertThrows(IllegalArgumentException.class, () -> actual("a=\\u12G4".getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    @Test
+    public void testRandomContent() throws IOException {
+        final char[] alphabet = { 'a', 'b', ' ', '\t', '\f', '=', ':', '\\', '\n', '\r', '#', '!', 'u', '0', 'n' };
+        final Random random = new Random(8);
+
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder content = new StringBuilder();
+            int length = random.nextInt(40);
+
+            for (int c = 0; c < length; c++) {
+                content.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+
+            byte[] bytes = content.toString().getBytes(StandardCharsets.ISO_8859_1);
+            Map<Object, Object> expected;
+
+            try {
+                expected = expected(bytes);
+            } catch (IllegalArgumentException e) {
+                assertThrows(IllegalArgumentException.class, () -> actual(bytes), content.toString());
+                continue;
+            }
+
+            assertEquals(expected, actual(bytes), content.toString());
+        }
+    }
+
+    @Test
+    public void testUtf8() throws IOException {
+        byte[] content = "café=crème\n€\\\n  uro=\\u20AC\n日本=語".getBytes(StandardCharsets.UTF_8);
+        assertEquals(expectedUtf8(content), actual(content, StandardCharsets.UTF_8));
+        assertEquals("crème", actual(content, StandardCharsets.UTF_8).get("café"));
+    }
+
+    @Test
+    public void testUtf8MalformedInputReplaced() throws IOException {
+        byte[] content = { 'k', '=', (byte) 0xC3, 'x', '\n', (byte) 0xFF, '=', 'v' };
+        assertEquals(expectedUtf8(content), actual(content, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testLargeContent() throws IOException {
+        StringBuilder content = new StringBuilder();
+
+        for (int i = 0; i < 10_000; i++) {
+            content.append("key.").append(i).append(" = value ").append(i).append(i % 10 == 0 ? "\\\n  continued\n" : "\n");
+        }
+
+        byte[] bytes = content.toString().getBytes(StandardCharsets.ISO_8859_1);
+        assertEquals(expected(bytes), actual(bytes, StandardCharsets.ISO_8859_1));
+        assertEquals(expectedUtf8(bytes), actual(bytes, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testRandomUtf8Content() throws IOException {
+        final char[] alphabet = { 'a', 'é', '€', ' ', '\t', '=', ':', '\\', '\n', '\r', '#', 'u', '0' };
+        final Random random = new Random(12);
+
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder content = new StringBuilder();
+            int length = random.nextInt(40);
+
+            for (int c = 0; c < length; c++) {
+                content.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+
+            byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+            Map<Object, Object> expected;
+
+            try {
+                expected = expectedUtf8(bytes);
+            } catch (IllegalArgumentException e) {
+                assertThrows(IllegalArgumentException.class, () -> actual(bytes, StandardCharsets.UTF_8), content.toString());
+                continue;
+            }
+
+            assertEquals(expected, actual(bytes, StandardCharsets.UTF_8), content.toString());
+        }
+    }
+}
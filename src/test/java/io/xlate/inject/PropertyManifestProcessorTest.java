@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitPlatform.class)
+public class PropertyManifestProcessorTest {
+
+    static final String SOURCE = String.join("\n",
+        "package com.example;",
+        "import java.util.Properties;",
+        "import javax.inject.Inject;",
+        "import io.xlate.inject.*;",
+        "public class Config {",
+        "  @Inject @Property(defaultValue = \"30\") int timeout;",
+        "  @Inject @Property(name = \"db.url\", systemProperty = \"db.url\",",
+        "                   resource = @PropertyResource(value = \"config.xml\", format = PropertyResourceFormat.XML, allowMissingResource = true))",
+        "  String url;",
+        "  @Inject @Property(pattern = \"#,##0\") PropertyValue<java.math.BigDecimal> limit;",
+        "  @Inject @PropertyResource(value = \"file:/etc/app.properties\", watch = true) Properties settings;",
+        "  @Inject public Config(@Property String first) { }",
+        "  @Inject void init(@Property(resolveEnvironment = true) Long count) { }",
+        "  public static class Nested { @Inject @Property java.util.Date date; }",
+        "}");
+
+    @Test
+    public void testManifestGenerated(@TempDir Path directory) throws IOException {
+        Path source = directory.resolve("src/com/example/Config.java");
+        Path output = Files.createDirectories(directory.resolve("classes"));
+        Files.createDirectories(source.getParent());
+        Files.write(source, SOURCE.getBytes(StandardCharsets.UTF_8));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        int result = compiler.run(null, null, null,
+                                  "-proc:only",
+                                  "-processor", PropertyManifestProcessor.class.getName(),
+                                  "-classpath", System.getProperty("java.class.path"),
+                                  "-d", output.toString(),
+                                  source.toString());
+        assertEquals(0, result);
+
+        List<PropertyManifest.Entry> entries;
+
+        try (InputStream stream = Files.newInputStream(output.resolve(PropertyManifest.LOCATION))) {
+            entries = PropertyManifest.read(stream);
+        }
+
+        assertEquals(7, entries.size());
+
+        PropertyManifest.Entry timeout = find(entries, "timeout");
+        assertEquals("com.example.Config", timeout.beanClass);
+        assertEquals("int", timeout.type);
+        assertEquals("timeout", timeout.name);
+        assertEquals("com.example.Config.timeout", timeout.systemProperty);
+        assertEquals("30", timeout.defaultValue);
+        assertEquals("", timeout.location);
+
+        PropertyManifest.Entry url = find(entries, "url");
+        assertEquals("db.url", url.name);
+        assertEquals("db.url", url.systemProperty);
+        assertEquals(Property.DEFAULT_NULL, url.defaultValue);
+        assertEquals("config.xml", url.location);
+        assertEquals(PropertyResourceFormat.XML, url.format);
+        assertTrue(url.allowMissingResource);
+
+        PropertyManifest.Entry limit = find(entries, "limit");
+        assertEquals("java.math.BigDecimal", limit.type);
+        assertEquals("#,##0", limit.pattern);
+
+        PropertyManifest.Entry settings = find(entries, "settings");
+        assertEquals(PropertyManifest.Kind.RESOURCE, settings.kind);
+        assertEquals("java.util.Properties", settings.type);
+        assertEquals("file:/etc/app.properties", settings.location);
+        assertTrue(settings.watch);
+
+        PropertyManifest.Entry first = find(entries, "com.example.Config.arg0");
+        assertEquals("com.example.Config.arg0", first.name);
+        assertEquals("java.lang.String", first.type);
+
+        PropertyManifest.Entry count = find(entries, "init.arg0");
+        assertEquals("java.lang.Long", count.type);
+        assertTrue(count.resolveEnvironment);
+        assertFalse(count.allowMissingResource);
+
+        PropertyManifest.Entry date = find(entries, "date");
+        assertEquals("com.example.Config$Nested", date.beanClass);
+        assertEquals("com.example.Config$Nested.date", date.systemProperty);
+        assertEquals("java.util.Date", date.type);
+    }
+
+    @Test
+    public void testNoManifestWithoutInjectionPoints(@TempDir Path directory) throws IOException {
+        Path source = directory.resolve("Plain.java");
+        Path output = Files.createDirectories(directory.resolve("classes"));
+        Files.write(source, "public class Plain { String value; }".getBytes(StandardCharsets.UTF_8));
+
+        int result = ToolProvider.getSystemJavaCompiler().run(null, null, null,
+                                                              "-proc:only",
+                                                              "-processor", PropertyManifestProcessor.class.getName(),
+                                                              "-classpath", System.getProperty("java.class.path"),
+                                                              "-d", output.toString(),
+                                                              source.toString());
+
+        assertEquals(0, result);
+        assertFalse(Files.exists(output.resolve(PropertyManifest.LOCATION)));
+    }
+
+    @Test
+    public void testManifestMergedOnIncrementalCompile(@TempDir Path directory) throws IOException {
+        Path config = directory.resolve("src/com/example/Config.java");
+        Path other = directory.resolve("src/com/example/Other.java");
+        Path output = Files.createDirectories(directory.resolve("classes"));
+        Files.createDirectories(config.getParent());
+        Files.write(config, SOURCE.getBytes(StandardCharsets.UTF_8));
+        Files.write(other,
+                    ("package com.example; import io.xlate.inject.*; import javax.inject.Inject;"
+                            + " public class Other { @Inject @Property String name; }").getBytes(StandardCharsets.UTF_8));
+        String classpath = System.getProperty("java.class.path") + File.pathSeparator + output;
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+        // Processor discovered from its service registration
+        assertEquals(0, compiler.run(null, null, null, "-classpath", classpath, "-d", output.toString(), config.toString()));
+        assertEquals(7, readManifest(output).size());
+
+        assertEquals(0, compiler.run(null, null, null, "-classpath", classpath, "-d", output.toString(), other.toString()));
+        List<PropertyManifest.Entry> entries = readManifest(output);
+        assertEquals(8, entries.size());
+        assertEquals("com.example.Other", find(entries, "name").beanClass);
+
+        // Recompiled classes replace their own entries
+        Files.write(other,
+                    ("package com.example; import io.xlate.inject.*; import javax.inject.Inject;"
+                            + " public class Other { @Inject @Property String title; }").getBytes(StandardCharsets.UTF_8));
+        assertEquals(0, compiler.run(null, null, null, "-classpath", classpath, "-d", output.toString(), other.toString()));
+        entries = readManifest(output);
+        assertEquals(8, entries.size());
+        assertFalse(entries.stream().anyMatch(e -> e.member.equals("name")));
+        assertEquals("com.example.Other", find(entries, "title").beanClass);
+    }
+
+    static List<PropertyManifest.Entry> readManifest(Path output) throws IOException {
+        try (InputStream stream = Files.newInputStream(output.resolve(PropertyManifest.LOCATION))) {
+            return PropertyManifest.read(stream);
+        }
+    }
+
+    static PropertyManifest.Entry find(List<PropertyManifest.Entry> entries, String member) {
+        return entries.stream().filter(e -> e.member.equals(member)).findFirst().orElseThrow(AssertionError::new);
+    }
+}
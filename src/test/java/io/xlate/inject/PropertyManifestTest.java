@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitPlatform.class)
+public class PropertyManifestTest {
+
+    @Test
+    public void testWriteRead() throws IOException {
+        PropertyManifest.Entry property = new PropertyManifest.Entry();
+        property.beanClass = "com.example.Config";
+        property.member = "timeout";
+        property.type = "int";
+        property.name = "timeout";
+        property.systemProperty = "com.example.Config.timeout";
+        property.defaultValue = "30 €";
+        property.pattern = "#,##0";
+        property.resolveEnvironment = true;
+        property.location = "${env.CONFIG}";
+        property.resolveLocationEnvironment = true;
+        property.format = PropertyResourceFormat.XML;
+        property.refreshInterval = 60;
+
+        PropertyManifest.Entry resource = new PropertyManifest.Entry();
+        resource.kind = PropertyManifest.Kind.RESOURCE;
+        resource.beanClass = "com.example.Config$Nested";
+        resource.member = "<init>.arg0";
+        resource.type = "java.util.Properties";
+        resource.allowMissingResource = true;
+        resource.watch = true;
+        resource.mapped = true;
+        resource.interpolate = true;
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PropertyManifest.write(Arrays.asList(property, resource), output);
+        assertFalse(new String(output.toByteArray(), StandardCharsets.ISO_8859_1).startsWith("#"), "Timestamp comment written");
+
+        List<PropertyManifest.Entry> entries = PropertyManifest.read(new ByteArrayInputStream(output.toByteArray()));
+        assertEquals(2, entries.size());
+
+        PropertyManifest.Entry p = entries.get(0);
+        assertEquals(PropertyManifest.Kind.PROPERTY, p.kind);
+        assertEquals("com.example.Config#timeout", p.toString());
+        assertEquals("int", p.type);
+        assertEquals("timeout", p.name);
+        assertEquals("com.example.Config.timeout", p.systemProperty);
+        assertEquals("30 €", p.defaultValue);
+        assertEquals("#,##0", p.pattern);
+        assertTrue(p.resolveEnvironment);
+        assertEquals("${env.CONFIG}", p.location);
+        assertTrue(p.resolveLocationEnvironment);
+        assertEquals(PropertyResourceFormat.XML, p.format);
+        assertEquals(60, p.refreshInterval);
+
+        PropertyManifest.Entry r = entries.get(1);
+        assertEquals(PropertyManifest.Kind.RESOURCE, r.kind);
+        assertEquals("com.example.Config$Nested", r.beanClass);
+        assertEquals(Property.DEFAULT_NULL, r.defaultValue);
+        assertEquals("", r.location);
+        assertTrue(r.allowMissingResource);
+        assertTrue(r.watch);
+        assertTrue(r.mapped);
+        assertTrue(r.interpolate);
+    }
+
+    @Test
+    public void testWriteStable() throws IOException {
+        PropertyManifest.Entry entry = new PropertyManifest.Entry();
+        entry.beanClass = "com.example.Config";
+        entry.member = "name";
+        entry.type = "java.lang.String";
+
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        PropertyManifest.write(Arrays.asList(entry), first);
+        PropertyManifest.write(Arrays.asList(entry), second);
+
+        assertArrayEquals(first.toByteArray(), second.toByteArray());
+    }
+}
@@ -19,6 +19,8 @@ package io.xlate.inject;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
+import java.util.function.Supplier;
+
 import javax.inject.Inject;
 
 import org.jboss.weld.junit5.WeldInitiator;
@@ -35,7 +37,8 @@ public class PropertyProducerBeanIT {
 
 	@WeldSetup
 	public WeldInitiator weld = WeldInitiator
-		.from(PropertyProducerBean.class)
+		.from(WeldInitiator.createWeld()
+		                   .addExtension(new PropertyInjectionExtension()))
 		.build();
 
     @Inject @Property
@@ -78,6 +81,14 @@ public class PropertyProducerBeanIT {
     @Property
     int int3;
 
+    @Inject
+    @Property(name = "int1")
+    PropertyValue<Integer> intValue1;
+
+    @Inject
+    @Property(name = "string1")
+    Supplier<String> stringSupplier1;
+
     @Test
     public void testString1_DefaultLookup() {
         assertEquals("string1value", string1);
@@ -137,4 +148,14 @@ public class PropertyProducerBeanIT {
     public void testInt3_NotFoundWithPrimitiveDefaultValue() {
         assertEquals(0, int3);
     }
+
+    @Test
+    public void testIntValue1_PropertyValue() {
+        assertEquals(Integer.valueOf(42), intValue1.get());
+    }
+
+    @Test
+    public void testStringSupplier1_Supplier() {
+        assertEquals("string1value", stringSupplier1.get());
+    }
 }
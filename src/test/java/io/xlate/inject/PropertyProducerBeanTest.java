@@ -17,8 +17,12 @@
 package io.xlate.inject;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -27,9 +31,19 @@ import java.lang.reflect.Member;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.Period;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.logging.Handler;
 import java.util.logging.Level;
@@ -44,6 +58,7 @@ import javax.json.Json;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.platform.runner.JUnitPlatform;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
@@ -869,6 +884,136 @@ public class PropertyProducerBeanTest {
         });
     }
 
+    /*-****************** produce java.time *************************/
+    @Test
+    public void testProduceInstantProperty() {
+        Property property = this.mockProperty("",
+                                              "",
+                                              PropertyResourceFormat.PROPERTIES,
+                                              "",
+                                              Property.DEFAULT_NULL);
+        InjectionPoint point = this.mockInjectionPoint(property, Member.class, "testProduceInstantProperty", -1);
+        assertEquals(Instant.parse("2017-07-02T03:45:16.432Z"), bean.produceInstantProperty(point));
+    }
+
+    @Test
+    public void testProduceInstantPropertyPattern() {
+        Property property = this.mockProperty("",
+                                              "M/d/yyyy H:mm:ss.SSS xx",
+                                              "",
+                                              PropertyResourceFormat.PROPERTIES,
+                                              "",
+                                              Property.DEFAULT_NULL,
+                                              false);
+        InjectionPoint point = this.mockInjectionPoint(property, Member.class, "testProduceInstantPropertyPattern", -1);
+        assertEquals(Instant.parse("2017-07-02T03:45:16.432Z"), bean.produceInstantProperty(point));
+    }
+
+    @Test
+    public void testProduceLocalDateProperty() {
+        Property property = this.mockProperty("",
+                                              "",
+                                              PropertyResourceFormat.PROPERTIES,
+                                              "",
+                                              Property.DEFAULT_NULL);
+        InjectionPoint point = this.mockInjectionPoint(property, Member.class, "testProduceLocalDateProperty", -1);
+        assertEquals(LocalDate.of(2017, 7, 1), bean.produceLocalDateProperty(point));
+    }
+
+    @Test
+    public void testProduceLocalDatePropertyPattern() {
+        Property property = this.mockProperty("",
+                                              "MM/dd/yyyy",
+                                              "",
+                                              PropertyResourceFormat.PROPERTIES,
+                                              "",
+                                              Property.DEFAULT_NULL,
+                                              false);
+        InjectionPoint point = this.mockInjectionPoint(property, Member.class, "testProduceLocalDatePropertyPattern", -1);
+        assertEquals(LocalDate.of(2017, 7, 1), bean.produceLocalDateProperty(point));
+    }
+
+    @Test
+    public void testProduceLocalDateTimeProperty() {
+        Property property = this.mockProperty("",
+                                              "",
+                                              PropertyResourceFormat.PROPERTIES,
+                                              "",
+                                              Property.DEFAULT_NULL);
+        InjectionPoint point = this.mockInjectionPoint(property, Member.class, "testProduceLocalDateTimeProperty", -1);
+        assertEquals(LocalDateTime.parse("2017-07-01T23:45:16.432"), bean.produceLocalDateTimeProperty(point));
+    }
+
+    @Test
+    public void testProduceOffsetDateTimeProperty() {
+        Property property = this.mockProperty("",
+                                              "",
+                                              PropertyResourceFormat.PROPERTIES,
+                                              "",
+                                              Property.DEFAULT_NULL);
+        InjectionPoint point = this.mockInjectionPoint(property, Member.class, "testProduceOffsetDateTimeProperty", -1);
+        assertEquals(OffsetDateTime.of(LocalDateTime.parse("2017-07-01T23:45:16.432"), ZoneOffset.ofHours(-4)),
+                     bean.produceOffsetDateTimeProperty(point));
+    }
+
+    @Test
+    public void testProduceZonedDateTimeProperty() {
+        Property property = this.mockProperty("",
+                                              "",
+                                              PropertyResourceFormat.PROPERTIES,
+                                              "",
+                                              Property.DEFAULT_NULL);
+        InjectionPoint point = this.mockInjectionPoint(property, Member.class, "testProduceZonedDateTimeProperty", -1);
+        assertEquals(LocalDateTime.parse("2017-07-01T23:45:16.432").atZone(ZoneId.of("America/New_York")),
+                     bean.produceZonedDateTimeProperty(point));
+    }
+
+    @Test
+    public void testProduceDurationProperty() {
+        Property property = this.mockProperty("",
+                                              "",
+                                              PropertyResourceFormat.PROPERTIES,
+                                              "",
+                                              Property.DEFAULT_NULL);
+        InjectionPoint point = this.mockInjectionPoint(property, Member.class, "testProduceDurationProperty", -1);
+        assertEquals(Duration.ofMinutes(15), bean.produceDurationProperty(point));
+    }
+
+    @Test
+    public void testProducePeriodProperty() {
+        Property property = this.mockProperty("",
+                                              "",
+                                              PropertyResourceFormat.PROPERTIES,
+                                              "",
+                                              Property.DEFAULT_NULL);
+        InjectionPoint point = this.mockInjectionPoint(property, Member.class, "testProducePeriodProperty", -1);
+        assertEquals(Period.of(0, 1, 2), bean.producePeriodProperty(point));
+    }
+
+    @Test
+    public void testProduceTemporalPropertyNull() {
+        Property property = this.mockProperty("",
+                                              "",
+                                              PropertyResourceFormat.PROPERTIES,
+                                              "",
+                                              Property.DEFAULT_NULL);
+        InjectionPoint point = this.mockInjectionPoint(property, Member.class, "TemporalNull", -1);
+        assertNull(bean.produceInstantProperty(point));
+        assertNull(bean.produceDurationProperty(point));
+    }
+
+    @Test
+    public void testProduceTemporalPropertyInvalid() {
+        Property property = this.mockProperty("testProduceTemporalPropertyInvalid",
+                                              "",
+                                              PropertyResourceFormat.PROPERTIES,
+                                              "",
+                                              Property.DEFAULT_NULL);
+        InjectionPoint point = this.mockInjectionPoint(property, Member.class, "testProduceTemporalPropertyInvalid", -1);
+        assertThrows(InjectionException.class, () -> bean.produceLocalDateProperty(point));
+        assertThrows(InjectionException.class, () -> bean.producePeriodProperty(point));
+    }
+
     /*-****************** produce JsonArray *************************/
     @Test
     public void testProducePropertyJsonArray() {
@@ -959,4 +1104,221 @@ public class PropertyProducerBeanTest {
         });
     }
 
+    @Test
+    public void testProduceBigDecimalPropertyCached() {
+        Property property = this.mockProperty("testProducePropertyBigDecimal",
+                                              "",
+                                              PropertyResourceFormat.PROPERTIES,
+                                              "",
+                                              Property.DEFAULT_NULL);
+        InjectionPoint point = this.mockInjectionPoint(property, BigDecimal.class, Member.class, "testProducePropertyBigDecimal", -1);
+        BigDecimal first = bean.produceBigDecimalProperty(point);
+        assertEquals(new BigDecimal("42.042"), first);
+        assertSame(first, bean.produceBigDecimalProperty(point));
+    }
+
+    /*-****************** converted during deployment *************************/
+    @Test
+    public void testConvertedDateCopied() throws Exception {
+        Property property = this.mockProperty("",
+                                              "",
+                                              PropertyResourceFormat.PROPERTIES,
+                                              "",
+                                              Property.DEFAULT_NULL);
+        InjectionPoint point = this.mockInjectionPoint(property, Date.class, Member.class, "testProduceDateProperty", -1);
+
+        assertTrue(bean.convert(point));
+        Date first = bean.produceDateProperty(point);
+        first.setTime(0);
+        Date second = bean.produceDateProperty(point);
+
+        assertNotSame(first, second);
+        assertEquals(LocalDateTime.parse("2017-07-01T23:45:16.432").atZone(ZoneId.of("-0400")).toInstant().toEpochMilli(),
+                     second.getTime());
+    }
+
+    @Test
+    public void testConvertedValueReturnedUntilReload() throws Exception {
+        PropertyResourceRegistry registry = new PropertyResourceRegistry();
+        bean = new PropertyProducerBean(registry);
+        Property property = this.mockProperty("testProducePropertyInteger",
+                                              "",
+                                              PropertyResourceFormat.PROPERTIES,
+                                              "",
+                                              Property.DEFAULT_NULL);
+        InjectionPoint point = this.mockInjectionPoint(property, Integer.TYPE, Member.class, "testProducePropertyInteger", -1);
+
+        assertTrue(bean.convert(point));
+        String resourceId = registry.listeners.keySet().iterator().next();
+        registry.putConvertedValue(PropertyFactory.getInjectionKey(point), resourceId, Integer.valueOf(7));
+        assertEquals(Integer.valueOf(7), bean.produceIntegerProperty(point));
+
+        registry.notifyListeners(resourceId);
+        assertEquals(Integer.valueOf(42), bean.produceIntegerProperty(point));
+    }
+
+    @Test
+    public void testConvertedValueDiscardedOnSystemPropertyRefresh() throws Exception {
+        final String systemProperty = "PropertyProducerBeanTest.converted";
+        PropertyResourceRegistry registry = new PropertyResourceRegistry();
+        bean = new PropertyProducerBean(registry);
+
+        try {
+            Property property = this.mockProperty("testProducePropertyInteger",
+                                                  "",
+                                                  PropertyResourceFormat.PROPERTIES,
+                                                  systemProperty,
+                                                  Property.DEFAULT_NULL);
+            InjectionPoint point = this.mockInjectionPoint(property, Integer.TYPE, Member.class, "testProducePropertyInteger", -1);
+
+            assertTrue(bean.convert(point));
+            assertTrue(bean.convert(point));
+            assertEquals(1, registry.listeners.values().iterator().next().size());
+            assertEquals(1, registry.systemPropertyListeners.get(systemProperty).size());
+            assertEquals(Integer.valueOf(42), bean.produceIntegerProperty(point));
+
+            System.setProperty(systemProperty, "7");
+            assertEquals(Integer.valueOf(42), bean.produceIntegerProperty(point));
+            registry.refreshSystemProperties();
+            assertNull(registry.getConvertedValue(PropertyFactory.getInjectionKey(point)));
+            assertEquals(Integer.valueOf(7), bean.produceIntegerProperty(point));
+        } finally {
+            System.clearProperty(systemProperty);
+        }
+    }
+
+    @Test
+    public void testConvertInvalidValue() {
+        Property property = this.mockProperty("testProducePropertyIntegerInvalid",
+                                              "",
+                                              PropertyResourceFormat.PROPERTIES,
+                                              "",
+                                              Property.DEFAULT_NULL);
+        InjectionPoint point = this.mockInjectionPoint(property, Integer.class, Member.class, "testProducePropertyIntegerInvalid", -1);
+        assertThrows(InjectionException.class, () -> bean.convert(point));
+    }
+
+    @Test
+    public void testConvertUnsupportedType() throws Exception {
+        Property property = this.mockProperty("",
+                                              "",
+                                              PropertyResourceFormat.PROPERTIES,
+                                              "",
+                                              Property.DEFAULT_NULL);
+        InjectionPoint point = this.mockInjectionPoint(property, getClass().getDeclaredField("integerValue").getGenericType(), Member.class, "int1", -1);
+        assertFalse(bean.convert(point));
+    }
+
+    /*-****************** produce PropertyValue *************************/
+    PropertyValue<Integer> integerValue;
+    PropertyValue<Object> unsupportedValue;
+
+    Type valueType(String fieldName) throws NoSuchFieldException {
+        return getClass().getDeclaredField(fieldName).getGenericType();
+    }
+
+    @Test
+    public void testProducePropertyValueInteger() throws Exception {
+        Property property = this.mockProperty("testProducePropertyInteger",
+                                              "",
+                                              PropertyResourceFormat.PROPERTIES,
+                                              "",
+                                              Property.DEFAULT_NULL);
+        InjectionPoint point = this.mockInjectionPoint(property, valueType("integerValue"), Member.class, "integerValue", -1);
+        PropertyValue<Integer> result = bean.producePropertyValue(point);
+        assertEquals(Integer.valueOf(42), result.get());
+        assertSame(result, bean.producePropertyValue(point));
+    }
+
+    @Test
+    public void testProducePropertyValueUpdatedOnSystemPropertyRefresh() throws Exception {
+        final String systemProperty = "PropertyProducerBeanTest.poolSize";
+        PropertyResourceRegistry registry = new PropertyResourceRegistry();
+        bean = new PropertyProducerBean(registry);
+
+        try {
+            Property property = this.mockProperty("testProducePropertyInteger",
+                                                  "",
+                                                  PropertyResourceFormat.PROPERTIES,
+                                                  systemProperty,
+                                                  Property.DEFAULT_NULL);
+            InjectionPoint point = this.mockInjectionPoint(property, valueType("integerValue"), Member.class, "integerValue", -1);
+            PropertyValue<Integer> result = bean.producePropertyValue(point);
+            assertEquals(Integer.valueOf(42), result.get());
+
+            System.setProperty(systemProperty, "7");
+            assertEquals(Integer.valueOf(42), result.get());
+            registry.refreshSystemProperties();
+            assertEquals(Integer.valueOf(7), result.get());
+
+            System.clearProperty(systemProperty);
+            registry.refreshSystemProperties();
+            assertEquals(Integer.valueOf(42), result.get());
+        } finally {
+            System.clearProperty(systemProperty);
+        }
+    }
+
+    @Test
+    public void testProducePropertyValueUnsupportedType() throws Exception {
+        Property property = this.mockProperty("testProducePropertyInteger",
+                                              "",
+                                              PropertyResourceFormat.PROPERTIES,
+                                              "",
+                                              Property.DEFAULT_NULL);
+        InjectionPoint point = this.mockInjectionPoint(property, valueType("unsupportedValue"), Member.class, "unsupportedValue", -1);
+        assertThrows(InjectionException.class, () -> bean.producePropertyValue(point));
+    }
+
+    @Test
+    public void testProducePropertyValueUpdatedOnReload(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("values.properties");
+        Files.write(file, "poolSize=10".getBytes(StandardCharsets.ISO_8859_1));
+        PropertyResourceRegistry registry = new PropertyResourceRegistry();
+        bean = new PropertyProducerBean(registry);
+
+        try {
+            Property property = this.mockProperty("poolSize",
+                                                  file.toUri().toString(),
+                                                  PropertyResourceFormat.PROPERTIES,
+                                                  "",
+                                                  Property.DEFAULT_NULL);
+            when(defaultPropertyResource.watch()).thenReturn(true);
+            InjectionPoint point = this.mockInjectionPoint(property, valueType("integerValue"), Member.class, "integerValue", -1);
+            PropertyValue<Integer> result = bean.producePropertyValue(point);
+            assertEquals(Integer.valueOf(10), result.get());
+
+            Files.write(file, "poolSize=20".getBytes(StandardCharsets.ISO_8859_1));
+            PropertyResourceRegistryTest.awaitCondition(() -> Integer.valueOf(20).equals(result.get()));
+        } finally {
+            registry.shutdown();
+        }
+    }
+
+    @Test
+    public void testProducePropertyValueFailureRegistersNoListener(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("values.properties");
+        Files.write(file, "poolSize=ten".getBytes(StandardCharsets.ISO_8859_1));
+        PropertyResourceRegistry registry = new PropertyResourceRegistry();
+        bean = new PropertyProducerBean(registry);
+
+        try {
+            Property property = this.mockProperty("poolSize",
+                                                  file.toUri().toString(),
+                                                  PropertyResourceFormat.PROPERTIES,
+                                                  "",
+                                                  Property.DEFAULT_NULL);
+            InjectionPoint point = this.mockInjectionPoint(property, valueType("integerValue"), Member.class, "integerValue", -1);
+            assertThrows(InjectionException.class, () -> bean.producePropertyValue(point));
+            assertTrue(registry.listeners.isEmpty());
+
+            Files.write(file, "poolSize=10".getBytes(StandardCharsets.ISO_8859_1));
+            registry.reload(file.toUri().toURL().toString(), registry.resources.get(file.toUri().toURL().toString()));
+            PropertyValue<Integer> result = bean.producePropertyValue(point);
+            assertEquals(Integer.valueOf(10), result.get());
+            assertEquals(1, registry.listeners.get(file.toUri().toURL().toString()).size());
+        } finally {
+            registry.shutdown();
+        }
+    }
 }
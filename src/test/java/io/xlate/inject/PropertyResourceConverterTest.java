@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitPlatform.class)
+public class PropertyResourceConverterTest {
+
+    @Test
+    public void testConvertFile(@TempDir Path directory) throws IOException {
+        Path input = directory.resolve("messages.properties");
+        Path output = directory.resolve("out/messages.bin");
+        Files.write(input, "greeting=Hello\\u0020World\nfarewell = Goodbye".getBytes(StandardCharsets.ISO_8859_1));
+
+        PropertyResourceConverter.main(new String[] { input.toString(), output.toString() });
+
+        BinaryPropertySnapshot snapshot = BinaryPropertySnapshot.map(output);
+        assertEquals(2, snapshot.size());
+        assertEquals("Hello World", snapshot.get("greeting"));
+        assertEquals("Goodbye", snapshot.get("farewell"));
+    }
+
+    @Test
+    public void testConvertDirectory(@TempDir Path directory) throws IOException {
+        Path input = Files.createDirectories(directory.resolve("in/nested"));
+        Path output = directory.resolve("out");
+        Properties properties = new Properties();
+        properties.setProperty("key", "xml");
+
+        try (OutputStream out = Files.newOutputStream(input.resolve("config.xml"))) {
+            properties.storeToXML(out, null);
+        }
+
+        Files.write(input.resolve("config.json"), "{\"db\":{\"hosts\":[\"a\",\"b\"]}}".getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("in/plain.properties"), "key=plain".getBytes(StandardCharsets.ISO_8859_1));
+        Files.write(input.resolve("notes.txt"), "key=ignored".getBytes(StandardCharsets.ISO_8859_1));
+
+        PropertyResourceConverter.main(new String[] { directory.resolve("in").toString(), output.toString() });
+
+        assertEquals("plain", BinaryPropertySnapshot.map(output.resolve("plain.bin")).get("key"));
+        assertEquals("b", BinaryPropertySnapshot.map(output.resolve("nested/config.bin")).get("db.hosts[1]"));
+        assertFalse(Files.exists(output.resolve("nested/notes.bin")));
+    }
+
+    @Test
+    public void testExplicitFormat(@TempDir Path directory) throws IOException {
+        Path input = directory.resolve("config.txt");
+        Path output = directory.resolve("config.bin");
+        Files.write(input, "{\"key\":true}".getBytes(StandardCharsets.UTF_8));
+
+        PropertyResourceConverter.main(new String[] { input.toString(), output.toString(), "json" });
+
+        assertEquals("true", BinaryPropertySnapshot.map(output).get("key"));
+    }
+
+    @Test
+    public void testFormatOf() {
+        assertEquals(PropertyResourceFormat.XML, PropertyResourceConverter.formatOf(Paths.get("a.XML")));
+        assertEquals(PropertyResourceFormat.JSON, PropertyResourceConverter.formatOf(Paths.get("a.json")));
+        assertEquals(PropertyResourceFormat.PROPERTIES, PropertyResourceConverter.formatOf(Paths.get("a.cfg")));
+        assertTrue(PropertyResourceConverter.isConvertible(Paths.get("a.properties")));
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> PropertyResourceConverter.main(new String[] { "input" }));
+        assertThrows(IllegalArgumentException.class, () -> PropertyResourceConverter.main(new String[] { "in", "out", "binary" }));
+    }
+}
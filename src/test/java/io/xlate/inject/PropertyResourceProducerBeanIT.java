@@ -18,6 +18,7 @@ package io.xlate.inject;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.util.Properties;
 
@@ -37,7 +38,8 @@ public class PropertyResourceProducerBeanIT {
 
 	@WeldSetup
 	public WeldInitiator weld = WeldInitiator
-		.from(PropertyResourceProducerBean.class)
+		.from(WeldInitiator.createWeld()
+		                   .addExtension(new PropertyInjectionExtension()))
 		.build();
 
     @Inject
@@ -48,6 +50,26 @@ public class PropertyResourceProducerBeanIT {
     @PropertyResource("io/xlate/inject/PropertyResourceProducerBeanIT2.properties")
     Properties props2;
 
+    @Inject
+    @PropertyResource(value = "io/xlate/inject/PropertyResourceProducerBeanIT.json", format = PropertyResourceFormat.JSON)
+    Properties jsonProps;
+
+    @Inject
+    @PropertyResource(access = PropertyResourceAccess.READ_ONLY)
+    Properties readOnlyProps;
+
+    @Inject
+    @PropertyResource(access = PropertyResourceAccess.COPY_ON_WRITE)
+    Properties copyOnWriteProps;
+
+    @Inject
+    @PropertyResource(value = "io/xlate/inject/PropertyResourceProducerBeanIT3.properties", interpolate = true)
+    Properties interpolatedProps;
+
+    @Inject
+    @PropertyResource("io/xlate/inject/PropertyResourceProducerBeanIT3.properties")
+    Properties uninterpolatedProps;
+
     @Test
     public void testDefaultProps() {
         assertNotNull(defaultProps);
@@ -62,4 +84,31 @@ public class PropertyResourceProducerBeanIT {
         assertEquals(1, props2.size());
         assertEquals("true", props2.getProperty("value.is.found"));
     }
+
+    @Test
+    public void testReadOnlyProps() {
+        assertEquals("val1", readOnlyProps.getProperty("key1"));
+        assertThrows(UnsupportedOperationException.class, () -> readOnlyProps.remove("key1"));
+    }
+
+    @Test
+    public void testCopyOnWriteProps() {
+        copyOnWriteProps.remove("key1");
+        assertEquals(1, copyOnWriteProps.size());
+        assertEquals("val1", readOnlyProps.getProperty("key1"));
+        assertEquals("val1", defaultProps.getProperty("key1"));
+    }
+
+    @Test
+    public void testJsonProps() {
+        assertEquals(3, jsonProps.size());
+        assertEquals("db2.example.com", jsonProps.getProperty("db.hosts[1]"));
+        assertEquals("5432", jsonProps.getProperty("db.port"));
+    }
+
+    @Test
+    public void testInterpolatedProps() {
+        assertEquals("http://localhost:8080/api", interpolatedProps.getProperty("service.url"));
+        assertEquals("${service.host}:${service.port:8080}", uninterpolatedProps.getProperty("service.address"));
+    }
 }
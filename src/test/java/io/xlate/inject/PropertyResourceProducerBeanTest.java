@@ -18,6 +18,9 @@ package io.xlate.inject;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
@@ -53,6 +56,7 @@ public class PropertyResourceProducerBeanTest extends AbstractInjectionPointTest
         when(annotation.value()).thenReturn(url);
         when(annotation.format()).thenReturn(format);
         when(annotation.resolveEnvironment()).thenReturn(resolveEnvironment);
+        when(annotation.access()).thenReturn(PropertyResourceAccess.SHARED);
         return annotation;
     }
 
@@ -163,4 +167,52 @@ public class PropertyResourceProducerBeanTest extends AbstractInjectionPointTest
         assertNotNull(result);
         assertEquals(1, result.size());
     }
+
+    @Test
+    public void testProducePropertiesSharedByDefault() {
+        PropertyResource annotation = annotation("", PropertyResourceFormat.PROPERTIES, false);
+        InjectionPoint point = injectionPoint(annotation, Properties.class, Member.class, "", -1);
+        assertSame(bean.produceProperties(point), bean.produceProperties(point));
+    }
+
+    @Test
+    public void testProducePropertiesReadOnly() {
+        PropertyResource annotation = annotation("", PropertyResourceFormat.PROPERTIES, false);
+        when(annotation.access()).thenReturn(PropertyResourceAccess.READ_ONLY);
+        InjectionPoint point = injectionPoint(annotation, Properties.class, Member.class, "", -1);
+        Properties result = bean.produceProperties(point);
+        assertEquals(3, result.size());
+        assertSame(result, bean.produceProperties(point));
+        assertThrows(UnsupportedOperationException.class, () -> result.setProperty("key", "value"));
+        assertThrows(UnsupportedOperationException.class, () -> result.clear());
+        assertEquals(3, result.size());
+    }
+
+    @Test
+    public void testProducePropertiesCopyOnWrite() {
+        PropertyResource annotation = annotation("", PropertyResourceFormat.PROPERTIES, false);
+        when(annotation.access()).thenReturn(PropertyResourceAccess.COPY_ON_WRITE);
+        InjectionPoint point = injectionPoint(annotation, Properties.class, Member.class, "", -1);
+        Properties first = bean.produceProperties(point);
+        Properties second = bean.produceProperties(point);
+        assertNotSame(first, second);
+        first.clear();
+        first.setProperty("key", "value");
+        assertEquals(1, first.size());
+        assertEquals(3, second.size());
+        assertNull(second.getProperty("key"));
+    }
+
+    @Test
+    public void testProducePropertiesReadOnlyMissingResource() {
+        PropertyResource annotation = annotation("classpath:io/xlate/inject/test/does-not-exist.properties",
+                                                 PropertyResourceFormat.PROPERTIES,
+                                                 false);
+        when(annotation.allowMissingResource()).thenReturn(true);
+        when(annotation.access()).thenReturn(PropertyResourceAccess.READ_ONLY);
+        InjectionPoint point = injectionPoint(annotation, Properties.class, Member.class, "", -1);
+        Properties result = bean.produceProperties(point);
+        assertTrue(result.isEmpty());
+        assertThrows(UnsupportedOperationException.class, () -> result.setProperty("key", "value"));
+    }
 }
@@ -0,0 +1,687 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.InvalidPropertiesFormatException;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+import com.sun.net.httpserver.HttpServer;
+
+@RunWith(JUnitPlatform.class)
+public class PropertyResourceRegistryTest {
+
+    private PropertyResourceRegistry registry;
+
+    @BeforeEach
+    public void setup() {
+        registry = new PropertyResourceRegistry();
+    }
+
+    @AfterEach
+    public void teardown() {
+        registry.shutdown();
+    }
+
+    URL countingUrl(String content, AtomicInteger opens, CountDownLatch release, int failures) throws IOException {
+        return new URL(null, "counting:" + content.hashCode(), new URLStreamHandler() {
+            @Override
+            protected URLConnection openConnection(URL u) {
+                return new URLConnection(u) {
+                    @Override
+                    public void connect() {
+                        // No connection required
+                    }
+
+                    @Override
+                    public InputStream getInputStream() throws IOException {
+                        if (opens.incrementAndGet() <= failures) {
+                            throw new IOException("Simulated failure");
+                        }
+                        try {
+                            release.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return new ByteArrayInputStream(content.getBytes(StandardCharsets.ISO_8859_1));
+                    }
+                };
+            }
+        });
+    }
+
+    @Test
+    public void testGetPropertiesLoadedOnceForConcurrentCallers() throws Exception {
+        final AtomicInteger opens = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final URL resourceUrl = countingUrl("key1=value1\nkey2=value2", opens, release, 0);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final List<Future<Properties>> results = new ArrayList<>();
+
+        try {
+            Callable<Properties> task = () -> registry.getProperties(resourceUrl, PropertyResourceFormat.PROPERTIES, false);
+
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(task));
+            }
+
+            release.countDown();
+            Properties first = results.get(0).get(5, TimeUnit.SECONDS);
+
+            for (Future<Properties> result : results) {
+                Properties properties = result.get(5, TimeUnit.SECONDS);
+                assertSame(first, properties);
+                assertEquals(2, properties.size());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, opens.get());
+    }
+
+    @Test
+    public void testGetPropertiesFailedLoadRetried() throws IOException {
+        registry = new PropertyResourceRegistry(Long.MAX_VALUE, Long.MAX_VALUE, 0, 0);
+        final AtomicInteger opens = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(0);
+        final URL resourceUrl = countingUrl("key1=value1", opens, release, 1);
+
+        assertThrows(IOException.class, () -> registry.getProperties(resourceUrl, PropertyResourceFormat.PROPERTIES, false));
+        assertEquals(0, registry.size());
+
+        Properties properties = registry.getProperties(resourceUrl, PropertyResourceFormat.PROPERTIES, false);
+        assertEquals("value1", properties.getProperty("key1"));
+        assertEquals(2, opens.get());
+    }
+
+    @Test
+    public void testGetPropertiesFailedLoadNotRetriedBeforeTtl() throws IOException {
+        registry = new PropertyResourceRegistry(Long.MAX_VALUE, Long.MAX_VALUE, 60_000, 60_000);
+        final AtomicInteger opens = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(0);
+        final URL resourceUrl = countingUrl("key1=value1", opens, release, 1);
+
+        IOException first = assertThrows(IOException.class, () -> registry.getProperties(resourceUrl, PropertyResourceFormat.PROPERTIES, false));
+        IOException second = assertThrows(IOException.class, () -> registry.getProperties(resourceUrl, PropertyResourceFormat.PROPERTIES, false));
+
+        assertSame(first, second);
+        assertEquals(1, opens.get());
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void testMissingResourceLoadedOnceAvailable(@TempDir Path directory) throws Exception {
+        registry = new PropertyResourceRegistry(Long.MAX_VALUE, Long.MAX_VALUE, 20, 20);
+        final Path file = directory.resolve("late.properties");
+        final URL resourceUrl = file.toUri().toURL();
+
+        assertTrue(registry.getProperties(resourceUrl, PropertyResourceFormat.PROPERTIES, true).isEmpty());
+        assertTrue(registry.getProperties(resourceUrl, PropertyResourceFormat.PROPERTIES, true).isEmpty());
+
+        Files.write(file, "key=value".getBytes(StandardCharsets.ISO_8859_1));
+        awaitCondition(() -> "value".equals(registry.getProperties(resourceUrl, PropertyResourceFormat.PROPERTIES, true).getProperty("key")));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void testMissingResourceRetriedOnRequestUnlessStarted(@TempDir Path directory) throws Exception {
+        registry = new PropertyResourceRegistry(Long.MAX_VALUE, Long.MAX_VALUE, 20, 20);
+        final Path file = directory.resolve("late.properties");
+        final URL resourceUrl = file.toUri().toURL();
+
+        assertTrue(registry.getProperties(resourceUrl, PropertyResourceFormat.PROPERTIES, true).isEmpty());
+        assertNull(registry.scheduler);
+
+        Files.write(file, "key=value".getBytes(StandardCharsets.ISO_8859_1));
+        Thread.sleep(50);
+        assertEquals(0, registry.size());
+        assertEquals("value", registry.getProperties(resourceUrl, PropertyResourceFormat.PROPERTIES, true).getProperty("key"));
+    }
+
+    @Test
+    public void testMissingResourceRetriedInBackground(@TempDir Path directory) throws Exception {
+        registry = new PropertyResourceRegistry(Long.MAX_VALUE, Long.MAX_VALUE, 20, 20);
+        registry.start();
+        final Path file = directory.resolve("late.properties");
+        final URL resourceUrl = file.toUri().toURL();
+        final AtomicInteger notified = new AtomicInteger();
+        registry.addListener(resourceUrl.toString(), notified::incrementAndGet);
+
+        assertTrue(registry.getProperties(resourceUrl, PropertyResourceFormat.PROPERTIES, true).isEmpty());
+        Files.write(file, "key=value".getBytes(StandardCharsets.ISO_8859_1));
+
+        // No further calls to getSnapshot are made
+        awaitCondition(() -> notified.get() == 1);
+        assertEquals(1, registry.size());
+        assertEquals("value", registry.getResources().get(resourceUrl.toString()).getProperty("key"));
+    }
+
+    @Test
+    public void testMissingWatchedFileLoadedWhenCreated(@TempDir Path directory) throws Exception {
+        registry = new PropertyResourceRegistry(Long.MAX_VALUE, Long.MAX_VALUE, 60_000, 60_000);
+        final Path file = directory.resolve("late.properties");
+        final URL resourceUrl = file.toUri().toURL();
+        final AtomicInteger notified = new AtomicInteger();
+        registry.addListener(resourceUrl.toString(), notified::incrementAndGet);
+
+        assertTrue(registry.getProperties(resourceUrl, PropertyResourceFormat.PROPERTIES, true, Duration.ZERO, true).isEmpty());
+        Files.write(file, "key=value1".getBytes(StandardCharsets.ISO_8859_1));
+        awaitCondition(() -> notified.get() >= 1);
+        assertEquals("value1", registry.getResources().get(resourceUrl.toString()).getProperty("key"));
+
+        // Still watched after the first successful load
+        Files.write(file, "key=value2".getBytes(StandardCharsets.ISO_8859_1));
+        awaitCondition(() -> "value2".equals(registry.getResources().get(resourceUrl.toString()).getProperty("key")));
+    }
+
+    @Test
+    public void testFailureTtlBackoff() {
+        registry = new PropertyResourceRegistry(Long.MAX_VALUE, Long.MAX_VALUE, 100, 1000);
+        assertEquals(100, registry.failureTtl(0));
+        assertEquals(200, registry.failureTtl(1));
+        assertEquals(800, registry.failureTtl(3));
+        assertEquals(1000, registry.failureTtl(4));
+        assertEquals(1000, registry.failureTtl(100));
+    }
+
+    @Test
+    public void testGetResourcesContainsLoadedResources() throws IOException {
+        final URL resourceUrl = new URL(null, "classpath:io/xlate/inject/test/test.properties", new ClasspathURLStreamHandler(getClass().getClassLoader()));
+        Properties properties = registry.getProperties(resourceUrl, PropertyResourceFormat.PROPERTIES, false);
+        Map<String, Properties> resources = registry.getResources();
+
+        assertEquals(1, registry.size());
+        assertEquals(properties, resources.get(resourceUrl.toString()));
+        assertThrows(UnsupportedOperationException.class, () -> resources.clear());
+        assertThrows(UnsupportedOperationException.class, () -> resources.get(resourceUrl.toString()).setProperty("key", "changed"));
+        assertNull(properties.getProperty("key"));
+    }
+
+    @Test
+    public void testGetResourcesExcludesMissingResource() throws IOException {
+        final URL resourceUrl = new URL(null, "classpath:io/xlate/inject/test/missing.properties", new ClasspathURLStreamHandler(getClass().getClassLoader()));
+        Properties properties = registry.getProperties(resourceUrl, PropertyResourceFormat.PROPERTIES, true);
+
+        assertTrue(properties.isEmpty());
+        assertEquals(0, registry.size());
+        assertTrue(registry.getResources().isEmpty());
+    }
+
+    @Test
+    public void testDuplicateStringsSharedAcrossResources() throws IOException {
+        final AtomicInteger opens = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(0);
+        final String key = "dedup.key." + System.nanoTime();
+        final String value = "dedup.value." + System.nanoTime();
+        final URL url1 = countingUrl(key + '=' + value + "\none" + key + "=one" + value, opens, release, 0);
+        final URL url2 = countingUrl(key + '=' + value + "\ntwo" + key + "=two" + value, opens, release, 0);
+        registry = new PropertyResourceRegistry(Long.MAX_VALUE, Long.MAX_VALUE, 0, 0, true, StandardCharsets.ISO_8859_1);
+
+        Properties properties1 = registry.getProperties(url1, PropertyResourceFormat.PROPERTIES, false);
+        assertEquals(0, registry.deduplicatedStrings());
+        Properties properties2 = registry.getProperties(url2, PropertyResourceFormat.PROPERTIES, false);
+
+        assertEquals(2, registry.deduplicatedStrings());
+        assertEquals(PropertyStringPool.sizeOf(key) + PropertyStringPool.sizeOf(value), registry.deduplicatedBytes());
+        assertSame(properties1.getProperty(key), properties2.getProperty(key));
+    }
+
+    @Test
+    public void testDuplicateStringsNotCountedForReloadedResource() throws IOException {
+        final String entry = "dedup.key=dedup.value." + System.nanoTime();
+        final URL resourceUrl = countingUrl(entry, new AtomicInteger(), new CountDownLatch(0), 0);
+        registry = new PropertyResourceRegistry(Long.MAX_VALUE, Long.MAX_VALUE, 0, 0, true, StandardCharsets.ISO_8859_1);
+
+        registry.getProperties(resourceUrl, PropertyResourceFormat.PROPERTIES, false);
+        registry.reload(resourceUrl.toString(), registry.resources.get(resourceUrl.toString()));
+        registry.reload(resourceUrl.toString(), registry.resources.get(resourceUrl.toString()));
+
+        assertEquals(0, registry.deduplicatedStrings());
+        assertEquals(0, registry.deduplicatedBytes());
+    }
+
+    @Test
+    public void testDuplicateStringsNotCountedAfterEviction() throws IOException {
+        final AtomicInteger opens = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(0);
+        final String entry = "dedup.key=dedup.value." + System.nanoTime();
+        registry = new PropertyResourceRegistry(1, Long.MAX_VALUE, 0, 0, true, StandardCharsets.ISO_8859_1);
+
+        registry.getProperties(countingUrl(entry + "\nresource=1", opens, release, 0), PropertyResourceFormat.PROPERTIES, false);
+        registry.getProperties(countingUrl(entry + "\nresource=2", opens, release, 0), PropertyResourceFormat.PROPERTIES, false);
+
+        assertEquals(1, registry.size());
+        assertEquals(0, registry.deduplicatedStrings());
+    }
+
+    @Test
+    public void testDuplicateStringsNotSharedByDefault() throws IOException {
+        final AtomicInteger opens = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(0);
+        final String entry = "dedup.key=dedup.value." + System.nanoTime();
+
+        Properties properties1 = registry.getProperties(countingUrl(entry + "\nresource=1", opens, release, 0), PropertyResourceFormat.PROPERTIES, false);
+        Properties properties2 = registry.getProperties(countingUrl(entry + "\nresource=2", opens, release, 0), PropertyResourceFormat.PROPERTIES, false);
+
+        assertNull(registry.stringPool);
+        assertNotSame(properties1.getProperty("dedup.key"), properties2.getProperty("dedup.key"));
+        assertEquals(0, registry.deduplicatedStrings());
+    }
+
+    @Test
+    public void testDuplicateStringsNotSharedWhenDisabled() throws IOException {
+        final AtomicInteger opens = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(0);
+        final String entry = "dedup.key=dedup.value." + System.nanoTime();
+        registry = new PropertyResourceRegistry(Long.MAX_VALUE, Long.MAX_VALUE, 0, 0, false, StandardCharsets.ISO_8859_1);
+
+        Properties properties1 = registry.getProperties(countingUrl(entry + "\nresource=1", opens, release, 0), PropertyResourceFormat.PROPERTIES, false);
+        Properties properties2 = registry.getProperties(countingUrl(entry + "\nresource=2", opens, release, 0), PropertyResourceFormat.PROPERTIES, false);
+
+        assertEquals(properties1.getProperty("dedup.key"), properties2.getProperty("dedup.key"));
+        assertNotSame(properties1.getProperty("dedup.key"), properties2.getProperty("dedup.key"));
+        assertEquals(0, registry.deduplicatedStrings());
+        assertEquals(0, registry.deduplicatedBytes());
+    }
+
+    @Test
+    public void testMappedFileResource(@TempDir Path directory) throws IOException {
+        final Path file = directory.resolve("mapped.properties");
+        Files.write(file, "key=value".getBytes(StandardCharsets.ISO_8859_1));
+        final URL resourceUrl = file.toUri().toURL();
+
+        PropertySnapshot snapshot = registry.getSnapshot(resourceUrl, PropertyResourceFormat.PROPERTIES, false, Duration.ZERO, false, true);
+
+        assertTrue(snapshot instanceof MappedPropertySnapshot);
+        assertEquals("value", snapshot.get("key"));
+        assertSame(snapshot, registry.getSnapshot(resourceUrl, PropertyResourceFormat.PROPERTIES, false));
+    }
+
+    @Test
+    public void testMappedIgnoredForXml(@TempDir Path directory) throws IOException {
+        final Path file = directory.resolve("mapped.xml");
+        final Properties properties = new Properties();
+        properties.setProperty("key", "value");
+
+        try (OutputStream out = Files.newOutputStream(file)) {
+            properties.storeToXML(out, null);
+        }
+
+        PropertySnapshot snapshot = registry.getSnapshot(file.toUri().toURL(), PropertyResourceFormat.XML, false, Duration.ZERO, false, true);
+
+        assertFalse(snapshot instanceof MappedPropertySnapshot);
+        assertEquals("value", snapshot.get("key"));
+    }
+
+    @Test
+    public void testMappedMissingFileAllowed(@TempDir Path directory) throws IOException {
+        final URL resourceUrl = directory.resolve("missing.properties").toUri().toURL();
+
+        assertSame(PropertySnapshot.EMPTY, registry.getSnapshot(resourceUrl, PropertyResourceFormat.PROPERTIES, true, Duration.ZERO, false, true));
+        assertThrows(FileNotFoundException.class, () -> new PropertyResourceRegistry().getSnapshot(resourceUrl, PropertyResourceFormat.PROPERTIES, false, Duration.ZERO, false, true));
+    }
+
+    @Test
+    public void testBinaryFileResourceMapped(@TempDir Path directory) throws IOException {
+        final Path file = directory.resolve("resource.bin");
+
+        try (OutputStream out = Files.newOutputStream(file)) {
+            BinaryPropertySnapshot.write(registry.loadSnapshot(new ByteArrayInputStream("key=value".getBytes(StandardCharsets.ISO_8859_1)), PropertyResourceFormat.PROPERTIES), out);
+        }
+
+        PropertySnapshot snapshot = registry.getSnapshot(file.toUri().toURL(), PropertyResourceFormat.BINARY, false);
+
+        assertTrue(snapshot instanceof BinaryPropertySnapshot);
+        assertEquals("value", snapshot.get("key"));
+        assertEquals(0, snapshot.weight());
+    }
+
+    @Test
+    public void testBinaryStreamResource() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryPropertySnapshot.write(registry.loadSnapshot(new ByteArrayInputStream("key=value".getBytes(StandardCharsets.ISO_8859_1)), PropertyResourceFormat.PROPERTIES), out);
+
+        PropertySnapshot snapshot = registry.loadSnapshot(new ByteArrayInputStream(out.toByteArray()), PropertyResourceFormat.BINARY);
+
+        assertTrue(snapshot instanceof BinaryPropertySnapshot);
+        assertEquals("value", snapshot.get("key"));
+    }
+
+    @Test
+    public void testBinaryResourceInvalid() throws IOException {
+        final AtomicInteger opens = new AtomicInteger();
+        final URL resourceUrl = countingUrl("key=value", opens, new CountDownLatch(0), 0);
+
+        assertThrows(InvalidPropertiesFormatException.class, () -> registry.getSnapshot(resourceUrl, PropertyResourceFormat.BINARY, false));
+    }
+
+    @Test
+    public void testPropertiesCharset() throws IOException {
+        final AtomicInteger opens = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(0);
+        final URL resourceUrl = countingUrl("currency=\u00e2\u0082\u00ac", opens, release, 0);
+
+        assertEquals("\u00e2\u0082\u00ac", registry.getSnapshot(resourceUrl, PropertyResourceFormat.PROPERTIES, false).get("currency"));
+
+        registry = new PropertyResourceRegistry(Long.MAX_VALUE, Long.MAX_VALUE, 0, 0, true, StandardCharsets.UTF_8);
+        assertEquals("\u20ac", registry.getSnapshot(resourceUrl, PropertyResourceFormat.PROPERTIES, false).get("currency"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvictedWhenMaximumSizeExceeded() throws IOException {
+        registry = new PropertyResourceRegistry(2, Long.MAX_VALUE);
+        final AtomicInteger opens = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(0);
+        final URL url1 = countingUrl("key=1", opens, release, 0);
+        final URL url2 = countingUrl("key=2", opens, release, 0);
+        final URL url3 = countingUrl("key=3", opens, release, 0);
+
+        registry.getProperties(url1, PropertyResourceFormat.PROPERTIES, false);
+        registry.getProperties(url2, PropertyResourceFormat.PROPERTIES, false);
+        registry.getProperties(url1, PropertyResourceFormat.PROPERTIES, false);
+        registry.getProperties(url3, PropertyResourceFormat.PROPERTIES, false);
+
+        assertEquals(2, registry.size());
+        assertTrue(registry.getResources().containsKey(url1.toString()));
+        assertFalse(registry.getResources().containsKey(url2.toString()));
+        assertEquals(3, opens.get());
+
+        Properties reloaded = registry.getProperties(url2, PropertyResourceFormat.PROPERTIES, false);
+        assertEquals("2", reloaded.getProperty("key"));
+        assertEquals(4, opens.get());
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void testLeastRecentlyAccessedEvictedWithinTick() throws IOException {
+        registry = new PropertyResourceRegistry(2, Long.MAX_VALUE);
+        final AtomicInteger opens = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(0);
+        final URL url1 = countingUrl("key=1", opens, release, 0);
+        final URL url2 = countingUrl("key=2", opens, release, 0);
+        final URL url3 = countingUrl("key=3", opens, release, 0);
+
+        registry.getProperties(url1, PropertyResourceFormat.PROPERTIES, false);
+        registry.getProperties(url2, PropertyResourceFormat.PROPERTIES, false);
+        // Both accessed with no load in between
+        registry.getProperties(url2, PropertyResourceFormat.PROPERTIES, false);
+        registry.getProperties(url1, PropertyResourceFormat.PROPERTIES, false);
+        registry.getProperties(url3, PropertyResourceFormat.PROPERTIES, false);
+
+        assertEquals(2, registry.size());
+        assertTrue(registry.getResources().containsKey(url1.toString()));
+        assertFalse(registry.getResources().containsKey(url2.toString()));
+        assertTrue(registry.getResources().containsKey(url3.toString()));
+    }
+
+    @Test
+    public void testSnapshotPublishedAfterWeightCounted() throws IOException {
+        registry = new PropertyResourceRegistry(Long.MAX_VALUE, Long.MAX_VALUE);
+        final URL resourceUrl = countingUrl("key=1", new AtomicInteger(), new CountDownLatch(0), 0);
+        final AtomicLong weight = new AtomicLong(-1);
+        registry.addListener(resourceUrl.toString(), () -> weight.set(registry.weight()));
+
+        PropertySnapshot snapshot = registry.getSnapshot(resourceUrl, PropertyResourceFormat.PROPERTIES, false);
+
+        assertEquals(snapshot.weight(), weight.get());
+        assertEquals(snapshot.weight(), registry.weight());
+    }
+
+    @Test
+    public void testAccessNotTrackedWhenUnbounded() throws IOException {
+        final URL resourceUrl = countingUrl("key=1", new AtomicInteger(), new CountDownLatch(0), 0);
+        registry.getSnapshot(resourceUrl, PropertyResourceFormat.PROPERTIES, false);
+        final PropertyResourceRegistry.Entry entry = registry.resources.get(resourceUrl.toString());
+        final long stamp = entry.lastAccess;
+
+        registry.getSnapshot(countingUrl("key=2", new AtomicInteger(), new CountDownLatch(0), 0), PropertyResourceFormat.PROPERTIES, false);
+        registry.getSnapshot(resourceUrl, PropertyResourceFormat.PROPERTIES, false);
+
+        assertFalse(registry.tracksAccess);
+        assertEquals(stamp, entry.lastAccess);
+    }
+
+    @Test
+    public void testAccessStampedOncePerLoad() throws IOException {
+        registry = new PropertyResourceRegistry(10, Long.MAX_VALUE);
+        final URL resourceUrl = countingUrl("key=1", new AtomicInteger(), new CountDownLatch(0), 0);
+        registry.getSnapshot(resourceUrl, PropertyResourceFormat.PROPERTIES, false);
+        final PropertyResourceRegistry.Entry entry = registry.resources.get(resourceUrl.toString());
+
+        registry.getSnapshot(resourceUrl, PropertyResourceFormat.PROPERTIES, false);
+        final long stamp = entry.lastAccess;
+        registry.getSnapshot(resourceUrl, PropertyResourceFormat.PROPERTIES, false);
+        assertEquals(stamp, entry.lastAccess);
+
+        registry.getSnapshot(countingUrl("key=2", new AtomicInteger(), new CountDownLatch(0), 0), PropertyResourceFormat.PROPERTIES, false);
+        registry.getSnapshot(resourceUrl, PropertyResourceFormat.PROPERTIES, false);
+        assertTrue(entry.lastAccess > stamp);
+    }
+
+    @Test
+    public void testEvictedWhenMaximumWeightExceeded() throws IOException {
+        registry = new PropertyResourceRegistry(Long.MAX_VALUE, 10);
+        final AtomicInteger opens = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(0);
+        final URL url1 = countingUrl("key1=value1", opens, release, 0);
+        final URL url2 = countingUrl("key2=value2", opens, release, 0);
+
+        registry.getProperties(url1, PropertyResourceFormat.PROPERTIES, false);
+        assertEquals(10, registry.weight());
+
+        registry.getProperties(url2, PropertyResourceFormat.PROPERTIES, false);
+        assertEquals(1, registry.size());
+        assertEquals(10, registry.weight());
+        assertTrue(registry.getResources().containsKey(url2.toString()));
+    }
+
+    @Test
+    public void testHttpResourceRefreshedWithConditionalRequests() throws Exception {
+        final AtomicReference<String> content = new AtomicReference<>("key=value1");
+        final AtomicInteger notModified = new AtomicInteger();
+        final HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+
+        server.createContext("/refresh.properties", exchange -> {
+            final String current = content.get();
+            final String entityTag = '"' + Integer.toHexString(current.hashCode()) + '"';
+
+            if (entityTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                byte[] body = current.getBytes(StandardCharsets.ISO_8859_1);
+                exchange.getResponseHeaders().add("ETag", entityTag);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            exchange.close();
+        });
+
+        server.start();
+
+        try {
+            final URL resourceUrl = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/refresh.properties");
+            final Duration interval = Duration.ofMillis(50);
+            Properties properties = registry.getProperties(resourceUrl, PropertyResourceFormat.PROPERTIES, false, interval, false);
+            assertEquals("value1", properties.getProperty("key"));
+
+            awaitCondition(() -> notModified.get() > 0);
+            assertSame(properties, registry.getProperties(resourceUrl, PropertyResourceFormat.PROPERTIES, false, interval, false));
+
+            content.set("key=value2");
+            awaitCondition(() -> "value2".equals(registry.getResources().get(resourceUrl.toString()).getProperty("key")));
+            assertEquals("value2", registry.getProperties(resourceUrl, PropertyResourceFormat.PROPERTIES, false, interval, false).getProperty("key"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testHttpReadTimeout() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/hung.properties", exchange -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        server.start();
+        System.setProperty(PropertyResourceRegistry.READ_TIMEOUT_PROPERTY, "200");
+
+        try {
+            registry = new PropertyResourceRegistry();
+            assertEquals(200, registry.readTimeout);
+            final URL resourceUrl = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/hung.properties");
+            final long start = System.nanoTime();
+
+            assertThrows(IOException.class, () -> registry.getProperties(resourceUrl, PropertyResourceFormat.PROPERTIES, false));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        } finally {
+            System.clearProperty(PropertyResourceRegistry.READ_TIMEOUT_PROPERTY);
+            release.countDown();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testSlowRefreshDoesNotDelayOtherResources() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger slowRequests = new AtomicInteger();
+        final AtomicReference<String> content = new AtomicReference<>("key=value1");
+        final HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        final ExecutorService handlers = Executors.newCachedThreadPool();
+        server.setExecutor(handlers);
+
+        server.createContext("/slow.properties", exchange -> {
+            if (slowRequests.incrementAndGet() > 1) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] body = "key=slow".getBytes(StandardCharsets.ISO_8859_1);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            exchange.close();
+        });
+        server.createContext("/fast.properties", exchange -> {
+            byte[] body = content.get().getBytes(StandardCharsets.ISO_8859_1);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            exchange.close();
+        });
+        server.start();
+
+        try {
+            final String base = "http://127.0.0.1:" + server.getAddress().getPort();
+            final URL slowUrl = new URL(base + "/slow.properties");
+            final URL fastUrl = new URL(base + "/fast.properties");
+            final Duration interval = Duration.ofMillis(50);
+
+            registry.getProperties(slowUrl, PropertyResourceFormat.PROPERTIES, false, interval, false);
+            registry.getProperties(fastUrl, PropertyResourceFormat.PROPERTIES, false, interval, false);
+
+            awaitCondition(() -> slowRequests.get() > 1);
+            content.set("key=value2");
+            awaitCondition(() -> "value2".equals(registry.getResources().get(fastUrl.toString()).getProperty("key")));
+
+            // The hung refresh is not repeated while it is still running
+            Thread.sleep(200);
+            assertEquals(2, slowRequests.get());
+        } finally {
+            release.countDown();
+            server.stop(0);
+            handlers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testWatchedFileReloadedWhenModified(@TempDir Path directory) throws Exception {
+        final Path file = directory.resolve("watched.properties");
+        Files.write(file, "key=value1".getBytes(StandardCharsets.ISO_8859_1));
+        final URL resourceUrl = file.toUri().toURL();
+
+        Properties properties = registry.getProperties(resourceUrl, PropertyResourceFormat.PROPERTIES, false, Duration.ZERO, true);
+        assertEquals("value1", properties.getProperty("key"));
+
+        Files.write(file, "key=value2".getBytes(StandardCharsets.ISO_8859_1));
+        awaitCondition(() -> "value2".equals(registry.getResources().get(resourceUrl.toString()).getProperty("key")));
+        assertEquals("value1", properties.getProperty("key"));
+    }
+
+    static void awaitCondition(Callable<Boolean> condition) throws Exception {
+        final long deadline = System.currentTimeMillis() + 5000;
+
+        while (!condition.call()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Condition not met before timeout");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitPlatform.class)
+public class PropertyResourceWatcherTest {
+
+    private PropertyResourceWatcher watcher;
+
+    @BeforeEach
+    public void setup() {
+        watcher = new PropertyResourceWatcher();
+    }
+
+    @AfterEach
+    public void teardown() {
+        watcher.close();
+    }
+
+    @Test
+    public void testOnlyChangedFileNotified(@TempDir Path directory) throws Exception {
+        final Path file1 = Files.write(directory.resolve("file1.properties"), "a=1".getBytes(StandardCharsets.ISO_8859_1));
+        final Path file2 = Files.write(directory.resolve("file2.properties"), "b=1".getBytes(StandardCharsets.ISO_8859_1));
+        final AtomicInteger changes1 = new AtomicInteger();
+        final AtomicInteger changes2 = new AtomicInteger();
+
+        watcher.watch(file1, changes1::incrementAndGet);
+        watcher.watch(file2, changes2::incrementAndGet);
+
+        Files.write(file2, "b=2".getBytes(StandardCharsets.ISO_8859_1));
+        PropertyResourceRegistryTest.awaitCondition(() -> changes2.get() > 0);
+
+        assertEquals(0, changes1.get());
+    }
+
+    @Test
+    public void testUnwatchedFileNotNotified(@TempDir Path directory) throws Exception {
+        final Path file1 = Files.write(directory.resolve("file1.properties"), "a=1".getBytes(StandardCharsets.ISO_8859_1));
+        final Path file2 = Files.write(directory.resolve("file2.properties"), "b=1".getBytes(StandardCharsets.ISO_8859_1));
+        final AtomicInteger changes1 = new AtomicInteger();
+        final AtomicInteger changes2 = new AtomicInteger();
+
+        watcher.watch(file1, changes1::incrementAndGet);
+        watcher.watch(file2, changes2::incrementAndGet);
+        watcher.unwatch(file1);
+
+        Files.write(file1, "a=2".getBytes(StandardCharsets.ISO_8859_1));
+        Files.write(file2, "b=2".getBytes(StandardCharsets.ISO_8859_1));
+        PropertyResourceRegistryTest.awaitCondition(() -> changes2.get() > 0);
+
+        assertEquals(0, changes1.get());
+    }
+
+    @Test
+    public void testSymbolicLinkSwapNotified(@TempDir Path directory) throws Exception {
+        // Layout of a Kubernetes ConfigMap volume
+        final Path version1 = Files.createDirectory(directory.resolve("..2020_10_18_1"));
+        Files.write(version1.resolve("app.properties"), "a=1".getBytes(StandardCharsets.ISO_8859_1));
+        Files.createSymbolicLink(directory.resolve("..data"), version1.getFileName());
+        final Path file = Files.createSymbolicLink(directory.resolve("app.properties"), Paths.get("..data", "app.properties"));
+        final AtomicInteger changes = new AtomicInteger();
+
+        watcher.watch(file, changes::incrementAndGet);
+
+        final Path version2 = Files.createDirectory(directory.resolve("..2020_10_18_2"));
+        Files.write(version2.resolve("app.properties"), "a=2".getBytes(StandardCharsets.ISO_8859_1));
+        final Path swap = Files.createSymbolicLink(directory.resolve("..data_tmp"), version2.getFileName());
+        Files.move(swap, directory.resolve("..data"), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        PropertyResourceRegistryTest.awaitCondition(() -> changes.get() > 0);
+        assertEquals("a=2", new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1));
+    }
+}
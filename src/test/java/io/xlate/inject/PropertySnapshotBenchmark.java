@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares lookup throughput of {@link PropertySnapshot} against
+ * {@link Properties} under contention, and prints the approximate retained
+ * heap per entry of each. Run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=io.xlate.inject.PropertySnapshotBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class PropertySnapshotBenchmark {
+
+    @Param({ "100", "10000" })
+    int entries;
+
+    Properties properties;
+    PropertySnapshot snapshot;
+    String[] keys;
+
+    @Setup
+    public void setup() {
+        properties = createProperties(entries);
+        snapshot = PropertySnapshot.of(properties);
+        keys = new String[64];
+
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = ("key" + (i * 7919 % entries)).intern();
+        }
+    }
+
+    static Properties createProperties(int entries) {
+        Properties result = new Properties();
+
+        for (int i = 0; i < entries; i++) {
+            result.setProperty("key" + i, "value" + (i % 100));
+        }
+
+        return result;
+    }
+
+    @Benchmark
+    public int lookupProperties() {
+        int found = 0;
+        for (String key : keys) {
+            if (properties.getProperty(key) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int lookupSnapshot() {
+        int found = 0;
+        for (String key : keys) {
+            if (snapshot.get(key) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /*
+     * Approximate retained bytes per entry, measured as the change in used heap
+     * when holding a number of copies of each structure.
+     */
+    static long bytesPerEntry(Supplier<Object> factory, int entries) {
+        final int copies = 50;
+        final Object[] retained = new Object[copies];
+        final long before = usedHeap();
+
+        for (int i = 0; i < copies; i++) {
+            retained[i] = factory.get();
+        }
+
+        final long after = usedHeap();
+        return retained.length > 0 ? (after - before) / ((long) copies * entries) : 0;
+    }
+
+    static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        final int entries = 10_000;
+        final Properties source = createProperties(entries);
+
+        System.out.println("Approximate bytes per entry (" + entries + " entries):");
+        System.out.println("  Properties:       " + bytesPerEntry(() -> {
+            Properties copy = new Properties();
+            copy.putAll(source);
+            return copy;
+        }, entries));
+        System.out.println("  PropertySnapshot: " + bytesPerEntry(() -> PropertySnapshot.of(source), entries));
+
+        new Runner(new OptionsBuilder().include(PropertySnapshotBenchmark.class.getSimpleName()).build()).run();
+    }
+}
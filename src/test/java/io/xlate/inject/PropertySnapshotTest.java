@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitPlatform.class)
+public class PropertySnapshotTest {
+
+    @Test
+    public void testGetMatchesProperties() {
+        Properties properties = new Properties();
+
+        for (int i = 0; i < 1000; i++) {
+            properties.setProperty("key" + i, "value" + i);
+        }
+
+        PropertySnapshot snapshot = PropertySnapshot.of(properties);
+
+        assertEquals(1000, snapshot.size());
+
+        for (String key : properties.stringPropertyNames()) {
+            assertEquals(properties.getProperty(key), snapshot.get(new String(key)));
+        }
+
+        assertNull(snapshot.get("key1000"));
+        assertEquals("default", snapshot.get("missing", "default"));
+    }
+
+    @Test
+    public void testKeysAndValuesCanonicalized() {
+        PropertySnapshot snapshot = new PropertySnapshot.Builder(String::intern).put(new String("key"), new String("value")).build();
+        assertSame("value", snapshot.get("key"));
+    }
+
+    @Test
+    public void testLastValueWins() {
+        PropertySnapshot snapshot = new PropertySnapshot.Builder().put("key", "value1").put("key", "value2").build();
+        assertEquals(1, snapshot.size());
+        assertEquals("value2", snapshot.get("key"));
+        assertEquals(9, snapshot.weight());
+    }
+
+    @Test
+    public void testCollidingKeys() {
+        // "Aa" and "BB" share a hash code
+        PropertySnapshot snapshot = new PropertySnapshot.Builder().put("Aa", "1").put("BB", "2").build();
+        assertEquals("1", snapshot.get("Aa"));
+        assertEquals("2", snapshot.get("BB"));
+        assertNull(snapshot.get("C#"));
+    }
+
+    @Test
+    public void testEmpty() {
+        assertTrue(PropertySnapshot.EMPTY.isEmpty());
+        assertNull(PropertySnapshot.EMPTY.get("anything"));
+        assertEquals(0, PropertySnapshot.EMPTY.weight());
+    }
+
+    @Test
+    public void testForEachAndToProperties() {
+        PropertySnapshot snapshot = new PropertySnapshot.Builder().put("k1", "v1").put("k2", "v2").build();
+        Map<String, String> visited = new HashMap<>();
+        snapshot.forEach(visited::put);
+
+        assertEquals(2, visited.size());
+        assertEquals(8, snapshot.weight());
+
+        Properties properties = snapshot.toProperties();
+        assertEquals("v1", properties.getProperty("k1"));
+        assertSame(properties, snapshot.toProperties());
+    }
+
+    @Test
+    public void testToPropertiesSharedByConcurrentCallers() throws Exception {
+        Properties source = new Properties();
+
+        for (int i = 0; i < 1000; i++) {
+            source.setProperty("key" + i, "value" + i);
+        }
+
+        for (int attempt = 0; attempt < 20; attempt++) {
+            PropertySnapshot snapshot = PropertySnapshot.of(source);
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Properties[]>> results = new ArrayList<>();
+
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return new Properties[] { snapshot.toProperties(), snapshot.toReadOnlyProperties() };
+                }));
+            }
+
+            start.countDown();
+
+            for (Future<Properties[]> result : results) {
+                assertSame(snapshot.toProperties(), result.get()[0]);
+                assertSame(snapshot.toReadOnlyProperties(), result.get()[1]);
+            }
+
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testConversionCached() throws Exception {
+        Properties source = new Properties();
+        source.setProperty("amount", "1,234.50");
+        PropertySnapshot snapshot = PropertySnapshot.of(source);
+        AtomicInteger conversions = new AtomicInteger();
+        PropertyConverters.Converter<BigDecimal> converter = (value, pattern) -> {
+            conversions.incrementAndGet();
+            return PropertyConverters.parseBigDecimal(value, pattern);
+        };
+
+        BigDecimal first = snapshot.convert("amount", BigDecimal.class, "#,##0.00", snapshot.get("amount"), converter);
+        BigDecimal second = snapshot.convert("amount", BigDecimal.class, "#,##0.00", snapshot.get("amount"), converter);
+
+        assertEquals(new BigDecimal("1234.50"), first);
+        assertSame(first, second);
+        assertEquals(1, conversions.get());
+
+        // Different pattern or changed value (e.g. a system property override)
+        snapshot.convert("amount", BigDecimal.class, "#,##0.0#", snapshot.get("amount"), converter);
+        assertEquals(2, conversions.get());
+        assertEquals(new BigDecimal("99"), snapshot.convert("amount", BigDecimal.class, "#,##0.00", "99", converter));
+        assertEquals(3, conversions.get());
+
+        // A new snapshot starts with an empty cache
+        PropertySnapshot.of(source).convert("amount", BigDecimal.class, "#,##0.00", "1,234.50", converter);
+        assertEquals(4, conversions.get());
+    }
+
+    @Test
+    public void testConvertedDateCopied() throws Exception {
+        PropertySnapshot snapshot = PropertySnapshot.of(new Properties());
+
+        Date first = snapshot.convert("date", Date.class, "yyyy-MM-dd", "2020-10-18", PropertyConverters::parseDate);
+        long time = first.getTime();
+        first.setTime(0);
+        Date second = snapshot.convert("date", Date.class, "yyyy-MM-dd", "2020-10-18", PropertyConverters::parseDate);
+
+        assertNotSame(first, second);
+        assertEquals(time, second.getTime());
+    }
+
+    @Test
+    public void testConversionNotCachedForEmpty() throws Exception {
+        AtomicInteger conversions = new AtomicInteger();
+        PropertyConverters.Converter<Integer> converter = (value, pattern) -> {
+            conversions.incrementAndGet();
+            return Integer.valueOf(value);
+        };
+
+        PropertySnapshot.EMPTY.convert("count", Integer.class, "", "1", converter);
+        PropertySnapshot.EMPTY.convert("count", Integer.class, "", "1", converter);
+
+        assertEquals(2, conversions.get());
+    }
+
+    @Test
+    public void testEmptyNotInterpolated() throws Exception {
+        Map<String, String> environment = new HashMap<>();
+        assertSame(PropertySnapshot.EMPTY, PropertySnapshot.EMPTY.interpolated(environment, System::getProperty));
+    }
+}
@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitPlatform.class)
+public class PropertyStringPoolTest {
+
+    @Test
+    public void testDuplicateReplacedWithCanonicalInstance() {
+        PropertyStringPool pool = new PropertyStringPool();
+        String first = pool.apply(new String("pool.value." + System.nanoTime()));
+        String second = new String(first);
+
+        assertSame(first, pool.apply(second));
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void testPoolsAreIndependent() {
+        String value = "pool.value." + System.nanoTime();
+        String first = new PropertyStringPool().apply(new String(value));
+        String second = new PropertyStringPool().apply(new String(value));
+
+        assertNotSame(first, second);
+    }
+
+    @Test
+    public void testReferencesCountsSharedInstances() {
+        PropertyStringPool pool = new PropertyStringPool();
+        Properties source = new Properties();
+        source.setProperty("a", "shared");
+        source.setProperty("b", "shared");
+        PropertySnapshot snapshot1 = PropertySnapshot.of(source, pool);
+        PropertySnapshot snapshot2 = PropertySnapshot.of(source, pool);
+
+        Map<String, Integer> references = PropertyStringPool.references(Arrays.asList(snapshot1, snapshot2));
+
+        assertEquals(Integer.valueOf(2), references.get("a"));
+        assertEquals(Integer.valueOf(4), references.get("shared"));
+    }
+
+    @Test
+    public void testSizeOf() {
+        assertEquals(40, PropertyStringPool.sizeOf(""));
+        assertEquals(48, PropertyStringPool.sizeOf("12345678"));
+        assertEquals(56, PropertyStringPool.sizeOf("1234567€"));
+    }
+}
@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitPlatform.class)
+public class PropertySystemOverlayTest {
+
+    static final String NAME = PropertySystemOverlayTest.class.getName() + ".value";
+    static final String OTHER = PropertySystemOverlayTest.class.getName() + ".other";
+
+    @AfterEach
+    public void clearProperties() {
+        System.clearProperty(NAME);
+        System.clearProperty(OTHER);
+        System.clearProperty(PropertyResourceRegistry.SYSTEM_PROPERTY_REFRESH_INTERVAL_PROPERTY);
+    }
+
+    @Test
+    public void testReadOnFirstRequest() {
+        PropertySystemOverlay overlay = new PropertySystemOverlay();
+        System.setProperty(NAME, "first");
+
+        assertEquals("first", overlay.get(NAME));
+        assertNull(overlay.get(OTHER));
+        assertEquals(2, overlay.size());
+    }
+
+    @Test
+    public void testChangesVisibleAfterRefresh() {
+        PropertySystemOverlay overlay = new PropertySystemOverlay();
+        System.setProperty(NAME, "first");
+        assertEquals("first", overlay.get(NAME));
+        assertNull(overlay.get(OTHER));
+
+        System.setProperty(NAME, "second");
+        System.setProperty(OTHER, "added");
+        assertEquals("first", overlay.get(NAME));
+        assertNull(overlay.get(OTHER));
+
+        assertEquals(2, overlay.refresh().size());
+        assertEquals(0, overlay.refresh().size());
+        assertEquals("second", overlay.get(NAME));
+        assertEquals("added", overlay.get(OTHER));
+
+        System.clearProperty(NAME);
+        overlay.refresh();
+        assertNull(overlay.get(NAME));
+    }
+
+    @Test
+    public void testEmptyValueDistinctFromMissing() {
+        PropertySystemOverlay overlay = new PropertySystemOverlay();
+        assertNull(overlay.get(NAME));
+
+        System.setProperty(NAME, "");
+        assertEquals(1, overlay.refresh().size());
+        assertEquals("", overlay.get(NAME));
+    }
+
+    @Test
+    public void testConcurrentFirstRequestsSeeValue() throws Exception {
+        final int count = 200;
+        final String prefix = NAME + '.';
+
+        try {
+            for (int i = 0; i < count; i++) {
+                System.setProperty(prefix + i, String.valueOf(i));
+            }
+
+            PropertySystemOverlay overlay = new PropertySystemOverlay();
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<Boolean>> results = new ArrayList<>();
+
+            for (int t = 0; t < 4; t++) {
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < count; i++) {
+                        if (!String.valueOf(i).equals(overlay.get(prefix + i))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+
+            executor.shutdown();
+            assertEquals(count, overlay.size());
+        } finally {
+            for (int i = 0; i < count; i++) {
+                System.clearProperty(prefix + i);
+            }
+        }
+    }
+
+    @Test
+    public void testOnlyRequestedNamesHeld() {
+        PropertySystemOverlay overlay = new PropertySystemOverlay();
+        overlay.refresh();
+        assertEquals(0, overlay.size());
+    }
+
+    @Test
+    public void testRegistryRefresh() {
+        PropertyResourceRegistry registry = new PropertyResourceRegistry();
+        PropertyFactory factory = new PropertyFactory(registry);
+        System.setProperty(NAME, "first");
+        assertEquals("first", factory.getSystemProperty(NAME));
+
+        System.setProperty(NAME, "second");
+        registry.refreshSystemProperties();
+        assertEquals("second", factory.getSystemProperty(NAME));
+    }
+
+    @Test
+    public void testRegistryRefreshAppliedToInterpolation() throws Exception {
+        PropertyResourceRegistry registry = new PropertyResourceRegistry();
+        PropertyFactory factory = new PropertyFactory(registry);
+        Properties source = new Properties();
+        source.setProperty("key", "${sys." + NAME + "}");
+        PropertySnapshot snapshot = PropertySnapshot.of(source);
+        System.setProperty(NAME, "first");
+        assertEquals("first", factory.interpolate(snapshot).get("key"));
+
+        System.setProperty(NAME, "second");
+        assertEquals("first", factory.interpolate(snapshot).get("key"));
+        registry.refreshSystemProperties();
+        assertEquals("second", factory.interpolate(snapshot).get("key"));
+    }
+
+    @Test
+    public void testRegistryPolling() throws InterruptedException {
+        System.setProperty(PropertyResourceRegistry.SYSTEM_PROPERTY_REFRESH_INTERVAL_PROPERTY, "10");
+        PropertyResourceRegistry registry = new PropertyResourceRegistry();
+        registry.start();
+
+        try {
+            System.setProperty(NAME, "first");
+            assertEquals("first", registry.getSystemProperty(NAME));
+            System.setProperty(NAME, "second");
+
+            for (int i = 0; i < 500 && !"second".equals(registry.getSystemProperty(NAME)); i++) {
+                Thread.sleep(10);
+            }
+
+            assertEquals("second", registry.getSystemProperty(NAME));
+        } finally {
+            registry.shutdown();
+        }
+    }
+
+    @Test
+    public void testPollingNotStartedByConstructor() {
+        System.setProperty(PropertyResourceRegistry.SYSTEM_PROPERTY_REFRESH_INTERVAL_PROPERTY, "10");
+        int threads = Thread.activeCount();
+
+        for (int i = 0; i < 5; i++) {
+            new PropertyResourceRegistry();
+            new PropertyProducerBean();
+            new PropertyResourceProducerBean();
+        }
+
+        assertTrue(Thread.activeCount() <= threads, "Threads started: " + (Thread.activeCount() - threads));
+    }
+}
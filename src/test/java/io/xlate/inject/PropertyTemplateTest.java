@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitPlatform.class)
+public class PropertyTemplateTest {
+
+    static Map<String, String> environment() {
+        Map<String, String> environment = new HashMap<>();
+        environment.put("HOST", "example.com");
+        environment.put("PORT", "8080");
+        return environment;
+    }
+
+    @Test
+    public void testCompileSegments() {
+        PropertyTemplate template = PropertyTemplate.compile("http://${env.HOST}:${env.PORT}/path");
+        assertArrayEquals(new String[] { "http://", ":", "/path" }, template.literals);
+        assertArrayEquals(new String[] { "HOST", "PORT" }, template.variables);
+        assertEquals(13, template.literalLength);
+        assertEquals("http://example.com:8080/path", template.resolve(environment()));
+    }
+
+    @Test
+    public void testAdjacentAndMissingReferences() {
+        assertEquals("example.com8080", PropertyTemplate.resolve("${env.HOST}${env.PORT}", environment()));
+        assertEquals("[]", PropertyTemplate.resolve("[${env.MISSING}]", environment()));
+    }
+
+    @Test
+    public void testNonEnvironmentReferenceUnchanged() {
+        String value = "Blah '${HOST}' blah";
+        assertSame(value, PropertyTemplate.resolve(value, environment()));
+    }
+
+    @Test
+    public void testValueWithoutPlaceholderReturnedAsIs() {
+        String value = new String("no placeholders " + System.nanoTime());
+        int cached = PropertyTemplate.cached();
+
+        assertSame(value, PropertyTemplate.resolve(value, Collections.emptyMap()));
+        assertEquals(cached, PropertyTemplate.cached());
+    }
+
+    @Test
+    public void testTemplateCompiledOnce() {
+        String value = "${env.HOST}/" + System.nanoTime();
+        PropertyTemplate first = PropertyTemplate.of(value);
+        assertSame(first, PropertyTemplate.of(new String(value)));
+    }
+
+    @Test
+    public void testFactoryUsesGivenEnvironment() {
+        PropertyFactory factory = new PropertyFactory(new PropertyResourceRegistry(), environment());
+        assertEquals("host=example.com:8080", factory.replaceEnvironmentReferences("host=${env.HOST}:${env.PORT}"));
+    }
+}
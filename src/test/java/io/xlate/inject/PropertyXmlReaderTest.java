@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.InvalidPropertiesFormatException;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitPlatform.class)
+public class PropertyXmlReaderTest {
+
+    static final String DOCTYPE = "<!DOCTYPE properties SYSTEM \"http://java.sun.com/dtd/properties.dtd\">";
+
+    static Map<Object, Object> expected(byte[] content) throws IOException {
+        Properties properties = new Properties();
+        properties.loadFromXML(new ByteArrayInputStream(content));
+        return new HashMap<>(properties);
+    }
+
+    static Map<Object, Object> actual(byte[] content) throws IOException {
+        Map<Object, Object> result = new HashMap<>();
+        PropertyXmlReader.read(new ByteArrayInputStream(content), result::put);
+        return result;
+    }
+
+    static void assertEquivalent(String content) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        assertEquals(expected(bytes), actual(bytes), content);
+    }
+
+    static void assertRejected(String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        assertThrows(InvalidPropertiesFormatException.class, () -> expected(bytes), content);
+        assertThrows(InvalidPropertiesFormatException.class, () -> actual(bytes), content);
+    }
+
+    @Test
+    public void testStoredProperties() throws IOException {
+        Properties properties = new Properties();
+
+        for (int i = 0; i < 100; i++) {
+            properties.setProperty("key" + i, "<value " + i + " & \"é€\">\n\t");
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        properties.storeToXML(out, "A comment");
+        Map<Object, Object> result = actual(out.toByteArray());
+        assertEquals(properties, result);
+    }
+
+    @Test
+    public void testEquivalentDocuments() throws IOException {
+        assertEquivalent("<?xml version=\"1.0\"?>" + DOCTYPE + "<properties><entry key=\"a\">1</entry><entry key=\"a\">2</entry></properties>");
+        assertEquivalent(DOCTYPE + "<properties><comment>c</comment><entry key=\"a\"/><entry key='b'>  x  </entry></properties>");
+        assertEquivalent(DOCTYPE + "<properties version=\"1.0\"><entry key=\"a&amp;b\">&#x20AC;&lt;<![CDATA[<raw>]]></entry></properties>");
+        assertEquivalent("<!DOCTYPE properties SYSTEM 'http://java.sun.com/dtd/properties.dtd'><!-- comment --><properties>\n  <entry key=\"a\">one<!-- inner -->two</entry>\n</properties>");
+        assertEquivalent(DOCTYPE + "<properties></properties>");
+        assertEquivalent(DOCTYPE + "<properties><entry key=\"a\">x&undefined;y</entry></properties>");
+    }
+
+    @Test
+    public void testDeclaredEncoding() throws IOException {
+        byte[] content = ("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>" + DOCTYPE + "<properties><entry key=\"café\">crème</entry></properties>").getBytes(StandardCharsets.ISO_8859_1);
+        assertEquals(expected(content), actual(content));
+        assertEquals("crème", actual(content).get("café"));
+    }
+
+    @Test
+    public void testInvalidDocumentsRejected() {
+        assertRejected("<properties><entry key=\"a\">1</entry></properties>");
+        assertRejected("<!DOCTYPE props SYSTEM \"http://java.sun.com/dtd/properties.dtd\"><properties/>");
+        assertRejected("<!DOCTYPE properties SYSTEM \"http://example.com/properties.dtd\"><properties/>");
+        assertRejected("<!DOCTYPE properties SYSTEM \"http://java.sun.com/dtd/properties.dtd\" [<!ENTITY x \"y\">]><properties/>");
+        assertRejected(DOCTYPE + "<props/>");
+        assertRejected(DOCTYPE + "<properties><value key=\"a\">1</value></properties>");
+        assertRejected(DOCTYPE + "<properties><entry>1</entry></properties>");
+        assertRejected(DOCTYPE + "<properties><comment/><comment/></properties>");
+        assertRejected(DOCTYPE + "<properties><entry key=\"a\">1</properties>");
+        assertRejected("");
+    }
+}
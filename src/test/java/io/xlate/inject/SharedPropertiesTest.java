@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (C) 2018 xlate.io LLC, http://www.xlate.io
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package io.xlate.inject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitPlatform.class)
+public class SharedPropertiesTest {
+
+    private Properties source;
+
+    @BeforeEach
+    public void setup() {
+        source = new Properties();
+        source.setProperty("key1", "value1");
+        source.setProperty("key2", "value2");
+    }
+
+    @Test
+    public void testReadOnlyReads() {
+        Properties properties = SharedProperties.readOnly(source);
+        assertEquals(2, properties.size());
+        assertEquals("value1", properties.getProperty("key1"));
+        assertEquals("default", properties.getProperty("key3", "default"));
+        assertTrue(properties.containsKey("key2"));
+        assertTrue(properties.stringPropertyNames().contains("key2"));
+        assertEquals(source, properties);
+        assertEquals(properties, source);
+        assertEquals(source.hashCode(), properties.hashCode());
+    }
+
+    @Test
+    public void testReadOnlyRejectsWrites() {
+        Properties properties = SharedProperties.readOnly(source);
+        assertThrows(UnsupportedOperationException.class, () -> properties.setProperty("key1", "x"));
+        assertThrows(UnsupportedOperationException.class, () -> properties.put("key1", "x"));
+        assertThrows(UnsupportedOperationException.class, () -> properties.remove("key1"));
+        assertThrows(UnsupportedOperationException.class, () -> properties.clear());
+        assertThrows(UnsupportedOperationException.class, () -> properties.load(new StringReader("key3=x")));
+        assertThrows(UnsupportedOperationException.class, () -> properties.computeIfAbsent("key3", k -> "x"));
+        assertThrows(UnsupportedOperationException.class, () -> properties.keySet().remove("key1"));
+        assertThrows(UnsupportedOperationException.class, () -> properties.values().clear());
+        assertThrows(UnsupportedOperationException.class, () -> properties.entrySet().iterator().next().setValue("x"));
+        assertEquals(2, source.size());
+        assertEquals("value1", source.getProperty("key1"));
+    }
+
+    @Test
+    public void testReadOnlyCloneIsModifiable() {
+        Properties copy = (Properties) SharedProperties.readOnly(source).clone();
+        copy.setProperty("key1", "x");
+        assertEquals("value1", source.getProperty("key1"));
+    }
+
+    @Test
+    public void testCopyOnWriteCopiesOnFirstWrite() {
+        SharedProperties properties = SharedProperties.copyOnWrite(source);
+        assertEquals("value1", properties.getProperty("key1"));
+        assertFalse(properties.isCopied());
+
+        properties.setProperty("key1", "x");
+        assertTrue(properties.isCopied());
+        assertEquals("x", properties.getProperty("key1"));
+        assertEquals("value2", properties.getProperty("key2"));
+        assertEquals("value1", source.getProperty("key1"));
+    }
+
+    @Test
+    public void testCopyOnWriteIteratorRemove() {
+        SharedProperties properties = SharedProperties.copyOnWrite(source);
+        Iterator<Object> keys = properties.keySet().iterator();
+
+        while (keys.hasNext()) {
+            if ("key1".equals(keys.next())) {
+                keys.remove();
+            }
+        }
+
+        assertEquals(1, properties.size());
+        assertNull(properties.getProperty("key1"));
+        assertEquals(2, source.size());
+
+        properties.keySet().removeIf("key2"::equals);
+        assertTrue(properties.isEmpty());
+        assertEquals(2, source.size());
+    }
+
+    @Test
+    public void testCopyOnWriteEntrySetValue() {
+        Properties properties = SharedProperties.copyOnWrite(source);
+
+        for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+            entry.setValue("x");
+        }
+
+        assertEquals("x", properties.getProperty("key1"));
+        assertEquals("x", properties.getProperty("key2"));
+        assertEquals("value1", source.getProperty("key1"));
+    }
+
+    @Test
+    public void testSerializedAsProperties() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(SharedProperties.readOnly(source));
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Object result = in.readObject();
+            assertEquals(Properties.class, result.getClass());
+            assertEquals(source, result);
+        }
+    }
+}